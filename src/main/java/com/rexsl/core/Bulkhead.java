@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Bounded number of concurrent XSL transformations.
+ *
+ * <p>Not more than {@code threads} transformations run at the same time,
+ * not more than {@code queue} requests wait for their turn, and all
+ * others are rejected immediately. This isolates CPU-heavy transformations
+ * from cheap requests served by the same threads of servlet container,
+ * which are never blocked for long when transformation capacity
+ * is exhausted.
+ *
+ * <p>Every successful {@link #enter()} must be followed by {@link #leave()},
+ * for example:
+ *
+ * <pre> if (bulkhead.enter()) {
+ *   try {
+ *     // transform
+ *   } finally {
+ *     bulkhead.leave();
+ *   }
+ * }</pre>
+ *
+ * <p>It is also a {@link Load} signal: its level is the number of running
+ * and waiting transformations, relative to the maximum of them.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "threads", "queue", "rejected" })
+@EqualsAndHashCode(of = { "threads", "queue" })
+final class Bulkhead implements Load {
+
+    /**
+     * Maximum number of concurrent transformations (zero means unlimited).
+     */
+    private final transient int threads;
+
+    /**
+     * Maximum number of waiting requests.
+     */
+    private final transient int queue;
+
+    /**
+     * Permits to transform.
+     */
+    private final transient Semaphore permits;
+
+    /**
+     * Number of requests waiting for a permit.
+     */
+    private final transient AtomicInteger waiting = new AtomicInteger();
+
+    /**
+     * How many requests were rejected.
+     */
+    private final transient AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Public ctor.
+     * @param max Maximum number of concurrent transformations (zero means
+     *  that their number is not limited)
+     * @param size Maximum number of requests waiting for their turn
+     */
+    Bulkhead(final int max, final int size) {
+        this.threads = max;
+        this.queue = size;
+        this.permits = new Semaphore(Math.max(max, 0), true);
+    }
+
+    /**
+     * Is the number of concurrent transformations limited?
+     * @return TRUE if it is
+     */
+    public boolean isEnabled() {
+        return this.threads > 0;
+    }
+
+    /**
+     * Wait for a permit to transform.
+     * @return TRUE if permitted, FALSE if rejected since too many
+     *  requests are waiting already
+     */
+    public boolean enter() {
+        boolean entered = !this.isEnabled() || this.permits.tryAcquire();
+        if (!entered) {
+            if (this.waiting.incrementAndGet() <= this.queue) {
+                try {
+                    this.permits.acquire();
+                    entered = true;
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            this.waiting.decrementAndGet();
+        }
+        if (!entered) {
+            this.rejected.incrementAndGet();
+        }
+        return entered;
+    }
+
+    /**
+     * Return the permit taken by {@link #enter()}.
+     */
+    public void leave() {
+        if (this.isEnabled()) {
+            this.permits.release();
+        }
+    }
+
+    @Override
+    public double level() {
+        double level = 0.0d;
+        if (this.isEnabled()) {
+            level = (double) (this.threads - this.permits.availablePermits()
+                + this.waiting.get()) / (this.threads + this.queue);
+        }
+        return level;
+    }
+
+    /**
+     * Total number of rejected requests.
+     * @return Rejected
+     */
+    public long rejected() {
+        return this.rejected.get();
+    }
+
+}
@@ -29,37 +29,79 @@
  */
 package com.rexsl.core;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 import javax.validation.constraints.NotNull;
+import javax.ws.rs.core.HttpHeaders;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang3.CharEncoding;
 
 /**
- * Wrapper that redirects all the writes to {@link ByteArrayOutputStream}.
+ * Wrapper that redirects all the writes to {@link ChunkedBuffer}.
+ *
+ * <p>Only responses that may need XSL transformation are buffered. As soon
+ * as the application sets a content type which is not XML (for example,
+ * {@code image/png} or {@code application/json}) or a status that can't
+ * have an XML body (redirects, {@code 204} and {@code 304}), the wrapper
+ * switches to direct mode: everything buffered so far and everything
+ * written later goes straight to the original response. Such responses are
+ * streamed to the client in constant memory. {@code Content-Length}
+ * is passed to the original response only in direct mode, since
+ * buffered content may be transformed later.
+ *
+ * <p>When the response is not needed any more the wrapper must be
+ * {@link #release()}-d, in order to return buffer segments to the pool.
  *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @author Krzysztof Krason (Krzysztof.Krason@gmail.com)
  * @version $Id$
  */
 @ToString
-@EqualsAndHashCode(callSuper = false, of = { "stream", "writer" })
+@EqualsAndHashCode(callSuper = false, of = { "buffer", "writer" })
 final class ByteArrayResponseWrapper extends HttpServletResponseWrapper {
 
     /**
-     * Stream for keeping the servlet response.
+     * Buffer for keeping the servlet response.
+     */
+    private final transient ChunkedBuffer buffer = new ChunkedBuffer();
+
+    /**
+     * Stream that writes to the buffer.
+     */
+    private final transient ByteArrayResponseWrapper.Stream stream =
+        new ByteArrayResponseWrapper.Stream(this.buffer);
+
+    /**
+     * Content length declared by the application, or -1 if not declared.
+     */
+    private transient int length = -1;
+
+    /**
+     * HTTP status set by the application.
+     */
+    private transient int status = HttpServletResponse.SC_OK;
+
+    /**
+     * MD5 digest of the content, calculated once.
      */
-    private final transient ByteArrayOutputStream stream =
-        new ByteArrayOutputStream();
+    private transient byte[] md5;
 
     /**
-     * Wraps ByteArrayOutputStream into a PrintWriter.
+     * Wraps the stream into a PrintWriter.
      */
     private final transient PrintWriter writer;
 
@@ -80,12 +122,113 @@ final class ByteArrayResponseWrapper extends HttpServletResponseWrapper {
     }
 
     /**
-     * Get the underlying byte array.
+     * Get the underlying byte array (a copy of it).
      * @return Byte array that contains the response.
      */
     @NotNull
     public byte[] getByteArray() {
-        return this.stream.toByteArray();
+        this.writer.flush();
+        return this.buffer.toByteArray();
+    }
+
+    /**
+     * Get the content of the response as a stream, without copying it.
+     * @return Stream with the bytes of the response
+     */
+    @NotNull
+    public InputStream getInputStream() {
+        this.writer.flush();
+        return this.buffer.toInputStream();
+    }
+
+    /**
+     * Get the content of the response as a text.
+     * @return Text of the response, decoded as UTF-8
+     */
+    @NotNull
+    public String getText() {
+        this.writer.flush();
+        try {
+            return IOUtils.toString(
+                this.buffer.toInputStream(), CharEncoding.UTF_8
+            );
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Write the content of the response to the stream, without copying it.
+     * @param output Where to write
+     * @throws IOException If fails
+     */
+    public void writeTo(@NotNull final OutputStream output)
+        throws IOException {
+        this.writer.flush();
+        this.buffer.writeTo(output);
+    }
+
+    /**
+     * Calculate MD5 digest of the content, without copying it.
+     *
+     * <p>The digest is calculated only once, the content must not be
+     * changed after this method is called.
+     *
+     * @return Digest
+     */
+    @NotNull
+    public byte[] digest() {
+        if (this.md5 == null) {
+            this.md5 = this.calculate();
+        }
+        return this.md5.clone();
+    }
+
+    /**
+     * HTTP status set by the application.
+     * @return Status
+     */
+    public int getStatus() {
+        return this.status;
+    }
+
+    /**
+     * Release the buffer, its content is not needed any more.
+     */
+    public void release() {
+        this.buffer.release();
+    }
+
+    /**
+     * Is it in direct mode, when nothing is buffered?
+     * @return TRUE if the content goes directly to the original response
+     */
+    public boolean isDirect() {
+        return this.stream.isDirect();
+    }
+
+    /**
+     * Number of bytes buffered.
+     * @return Total
+     */
+    public int size() {
+        this.writer.flush();
+        return this.buffer.size();
+    }
+
+    /**
+     * Content length declared by the application, while buffering.
+     * @return Length or -1 if it was not declared
+     */
+    public int getContentLength() {
+        return this.length;
+    }
+
+    /**
+     * Flush everything written through the writer.
+     */
+    public void flush() {
+        this.writer.flush();
     }
 
     @Override
@@ -97,12 +240,215 @@ final class ByteArrayResponseWrapper extends HttpServletResponseWrapper {
     @Override
     @NotNull
     public ServletOutputStream getOutputStream() {
-        return new ServletOutputStream() {
-            @Override
-            public void write(final int part) {
-                ByteArrayResponseWrapper.this.stream.write(part);
+        return this.stream;
+    }
+
+    @Override
+    public void setContentType(final String type) {
+        super.setContentType(type);
+        this.inspect(type);
+    }
+
+    @Override
+    public void setContentLength(final int len) {
+        if (this.isDirect()) {
+            super.setContentLength(len);
+        } else {
+            this.length = len;
+        }
+    }
+
+    @Override
+    public void setHeader(final String name, final String value) {
+        if (this.intercepted(name, value)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(final String name, final String value) {
+        if (this.intercepted(name, value)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(final String name, final int value) {
+        if (this.intercepted(name, Integer.toString(value))) {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setStatus(final int code) {
+        super.setStatus(code);
+        this.status = code;
+        this.inspect(code);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(final int code, final String msg) {
+        super.setStatus(code, msg);
+        this.status = code;
+        this.inspect(code);
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        this.writer.flush();
+        if (this.isDirect()) {
+            super.flushBuffer();
+        }
+    }
+
+    /**
+     * Calculate MD5 digest of the content.
+     * @return Digest
+     */
+    private byte[] calculate() {
+        this.writer.flush();
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        try {
+            this.buffer.writeTo(
+                new DigestOutputStream(
+                    NullOutputStream.NULL_OUTPUT_STREAM, digest
+                )
+            );
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Check the header and decide whether it should go to the original
+     * response.
+     * @param name Name of the header
+     * @param value Value of it
+     * @return TRUE if it should be passed to the original response
+     */
+    private boolean intercepted(final String name, final String value) {
+        boolean pass = true;
+        if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+            this.inspect(value);
+        } else if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+            && !this.isDirect()) {
+            try {
+                this.length = Integer.parseInt(value.trim());
+            } catch (final NumberFormatException ex) {
+                this.length = -1;
+            }
+            pass = false;
+        }
+        return pass;
+    }
+
+    /**
+     * Switch to direct mode if the content type can't be transformed.
+     * @param type Content type
+     */
+    private void inspect(final String type) {
+        if (type != null && !type.toLowerCase(Locale.ENGLISH).contains("xml")) {
+            this.bypass();
+        }
+    }
+
+    /**
+     * Switch to direct mode if the status means that there is no XML body.
+     * @param code HTTP status
+     */
+    private void inspect(final int code) {
+        if (code == HttpServletResponse.SC_NO_CONTENT
+            || code >= HttpServletResponse.SC_MULTIPLE_CHOICES
+            && code < HttpServletResponse.SC_BAD_REQUEST) {
+            this.bypass();
+        }
+    }
+
+    /**
+     * Switch to direct mode.
+     */
+    private void bypass() {
+        if (!this.isDirect()) {
+            this.writer.flush();
+            try {
+                this.stream.redirect(super.getOutputStream());
+            } catch (final IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            if (this.length >= 0) {
+                super.setContentLength(this.length);
             }
-        };
+        }
+    }
+
+    /**
+     * Servlet output stream that writes to the buffer, or to the original
+     * stream in direct mode.
+     */
+    private static final class Stream extends ServletOutputStream {
+        /**
+         * The buffer.
+         */
+        private final transient ChunkedBuffer buffer;
+        /**
+         * Original stream, in direct mode, or NULL.
+         */
+        private transient OutputStream target;
+        /**
+         * Public ctor.
+         * @param buf The buffer
+         */
+        Stream(final ChunkedBuffer buf) {
+            super();
+            this.buffer = buf;
+        }
+        /**
+         * Is it in direct mode?
+         * @return TRUE if it is
+         */
+        public boolean isDirect() {
+            return this.target != null;
+        }
+        /**
+         * Write everything buffered to the original stream and write there
+         * directly from now on.
+         * @param output Original stream
+         * @throws IOException If fails
+         */
+        public void redirect(final OutputStream output) throws IOException {
+            this.buffer.writeTo(output);
+            this.target = output;
+        }
+        @Override
+        public void write(final int part) throws IOException {
+            if (this.target == null) {
+                this.buffer.write(part);
+            } else {
+                this.target.write(part);
+            }
+        }
+        @Override
+        public void write(final byte[] data, final int off, final int len)
+            throws IOException {
+            if (this.target == null) {
+                this.buffer.write(data, off, len);
+            } else {
+                this.target.write(data, off, len);
+            }
+        }
+        @Override
+        public void flush() throws IOException {
+            if (this.target != null) {
+                this.target.flush();
+            }
+        }
     }
 
 }
@@ -0,0 +1,280 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Output stream that keeps its bytes in a list of fixed-size segments,
+ * taken from a global pool of reusable segments.
+ *
+ * <p>Unlike {@link java.io.ByteArrayOutputStream} it never copies bytes
+ * when it grows, and its content can be read (with {@link #toInputStream()})
+ * or written somewhere (with {@link #writeTo(OutputStream)}) without
+ * copying. When the buffer is not needed any more it must be
+ * {@link #release()}-d, in order to return its segments to the pool.
+ *
+ * <p>The class is NOT thread-safe, the pool is.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "size")
+@EqualsAndHashCode(callSuper = false, of = { "segments", "size" })
+final class ChunkedBuffer extends OutputStream {
+
+    /**
+     * Size of one segment, in bytes.
+     */
+    private static final int SEGMENT = 8192;
+
+    /**
+     * Maximum number of free segments kept in the pool.
+     */
+    private static final int MAX_POOLED = 1024;
+
+    /**
+     * Free segments.
+     */
+    private static final Queue<byte[]> POOL =
+        new ConcurrentLinkedQueue<byte[]>();
+
+    /**
+     * Number of free segments in the pool.
+     */
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    /**
+     * Segments in use.
+     */
+    private final transient List<byte[]> segments =
+        new ArrayList<byte[]>(1);
+
+    /**
+     * Total number of bytes written.
+     */
+    private transient int size;
+
+    /**
+     * Is it released already?
+     */
+    private transient boolean released;
+
+    @Override
+    public void write(final int data) {
+        final int pos = this.size % ChunkedBuffer.SEGMENT;
+        if (pos == 0) {
+            this.grow();
+        }
+        this.segments.get(this.segments.size() - 1)[pos] = (byte) data;
+        ++this.size;
+    }
+
+    @Override
+    public void write(@NotNull final byte[] data, final int off,
+        final int len) {
+        if (off < 0 || len < 0 || off + len > data.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int done = 0;
+        while (done < len) {
+            final int pos = this.size % ChunkedBuffer.SEGMENT;
+            if (pos == 0) {
+                this.grow();
+            }
+            final int chunk = Math.min(len - done, ChunkedBuffer.SEGMENT - pos);
+            System.arraycopy(
+                data, off + done,
+                this.segments.get(this.segments.size() - 1), pos,
+                chunk
+            );
+            done += chunk;
+            this.size += chunk;
+        }
+    }
+
+    /**
+     * Total number of bytes written.
+     * @return Size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Write all bytes to the output stream, segment by segment.
+     * @param output Where to write
+     * @throws IOException If fails
+     */
+    public void writeTo(@NotNull final OutputStream output)
+        throws IOException {
+        int left = this.size;
+        for (final byte[] segment : this.segments) {
+            final int len = Math.min(left, ChunkedBuffer.SEGMENT);
+            output.write(segment, 0, len);
+            left -= len;
+        }
+    }
+
+    /**
+     * Copy all bytes into a new array.
+     * @return Bytes
+     */
+    @NotNull
+    public byte[] toByteArray() {
+        final byte[] bytes = new byte[this.size];
+        int pos = 0;
+        for (final byte[] segment : this.segments) {
+            final int len = Math.min(this.size - pos, ChunkedBuffer.SEGMENT);
+            System.arraycopy(segment, 0, bytes, pos, len);
+            pos += len;
+        }
+        return bytes;
+    }
+
+    /**
+     * Read all bytes written so far, without copying them.
+     *
+     * <p>The stream must not be used after {@link #release()}.
+     *
+     * @return Stream with the bytes
+     */
+    @NotNull
+    public InputStream toInputStream() {
+        return new ChunkedBuffer.Input(this.segments, this.size);
+    }
+
+    /**
+     * Return all segments to the pool.
+     */
+    public void release() {
+        if (!this.released) {
+            this.released = true;
+            for (final byte[] segment : this.segments) {
+                if (ChunkedBuffer.POOLED.incrementAndGet()
+                    > ChunkedBuffer.MAX_POOLED) {
+                    ChunkedBuffer.POOLED.decrementAndGet();
+                    break;
+                }
+                ChunkedBuffer.POOL.offer(segment);
+            }
+            this.segments.clear();
+        }
+    }
+
+    /**
+     * Add one more segment.
+     */
+    private void grow() {
+        if (this.released) {
+            throw new IllegalStateException("buffer is released already");
+        }
+        byte[] segment = ChunkedBuffer.POOL.poll();
+        if (segment == null) {
+            segment = new byte[ChunkedBuffer.SEGMENT];
+        } else {
+            ChunkedBuffer.POOLED.decrementAndGet();
+        }
+        this.segments.add(segment);
+    }
+
+    /**
+     * Input stream over segments.
+     */
+    private static final class Input extends InputStream {
+        /**
+         * Segments.
+         */
+        private final transient List<byte[]> segments;
+        /**
+         * Total number of bytes.
+         */
+        private final transient int size;
+        /**
+         * Current position.
+         */
+        private transient int pos;
+        /**
+         * Public ctor.
+         * @param sgmts Segments
+         * @param total Total number of bytes in them
+         */
+        Input(final List<byte[]> sgmts, final int total) {
+            super();
+            this.segments = sgmts;
+            this.size = total;
+        }
+        @Override
+        public int read() {
+            int data = -1;
+            if (this.pos < this.size) {
+                data = this.segments.get(this.pos / ChunkedBuffer.SEGMENT)
+                    [this.pos % ChunkedBuffer.SEGMENT] & 0xff;
+                ++this.pos;
+            }
+            return data;
+        }
+        @Override
+        public int read(final byte[] data, final int off, final int len) {
+            int done = -1;
+            if (len == 0) {
+                done = 0;
+            } else if (this.pos < this.size) {
+                final int offset = this.pos % ChunkedBuffer.SEGMENT;
+                done = Math.min(
+                    Math.min(len, this.size - this.pos),
+                    ChunkedBuffer.SEGMENT - offset
+                );
+                System.arraycopy(
+                    this.segments.get(this.pos / ChunkedBuffer.SEGMENT),
+                    offset, data, off, done
+                );
+                this.pos += done;
+            }
+            return done;
+        }
+        @Override
+        public int available() {
+            return this.size - this.pos;
+        }
+    }
+
+}
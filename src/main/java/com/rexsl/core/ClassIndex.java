@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+
+/**
+ * Index of classes in a package, in a file like {@code jaxb.index}.
+ *
+ * <p>The file is a resource in the directory of the package. It contains
+ * names of classes, one per line, relative to the package (nested classes
+ * are named with a dot, for example {@code Outer.Inner}, as required
+ * by JAXB, or with {@code $}). Empty lines and lines starting with
+ * {@code #} are ignored. Such files are generated by {@link IndexProcessor}
+ * at build time, or written by hand.
+ *
+ * <p>The same package may be in many parts of classpath (JARs and
+ * directories), while the index lists classes of only one of them.
+ * That's why {@link #covers(String)} has to be checked before relying on
+ * the index instead of scanning the package.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString
+@EqualsAndHashCode(of = "file")
+final class ClassIndex {
+
+    /**
+     * Index of JAXB classes.
+     */
+    public static final String JAXB = "jaxb.index";
+
+    /**
+     * Index of JAX-RS resources and providers.
+     */
+    public static final String JAXRS = "jaxrs.index";
+
+    /**
+     * Name of index file.
+     */
+    private final transient String file;
+
+    /**
+     * Public ctor.
+     * @param name Name of index file, in the directory of the package
+     */
+    ClassIndex(@NotNull final String name) {
+        this.file = name;
+    }
+
+    /**
+     * Does the package have this index?
+     * @param pkg Name of the package
+     * @return TRUE if it has
+     */
+    public boolean exists(@NotNull final String pkg) {
+        return ClassIndex.loader().getResource(this.path(pkg)) != null;
+    }
+
+    /**
+     * Does every part of classpath with this package have this index?
+     * @param pkg Name of the package
+     * @return TRUE if the index lists all classes of the package
+     */
+    public boolean covers(@NotNull final String pkg) {
+        final String dir = pkg.replace('.', '/');
+        final Collection<String> indexes = new HashSet<String>(0);
+        boolean covers;
+        try {
+            for (final URL url : Collections.list(
+                ClassIndex.loader().getResources(this.path(pkg))
+            )) {
+                indexes.add(url.toString());
+            }
+            covers = !indexes.isEmpty();
+            for (final URL url
+                : Collections.list(ClassIndex.loader().getResources(dir))) {
+                String root = url.toString();
+                if (root.endsWith("/")) {
+                    root = root.substring(0, root.length() - 1);
+                }
+                if (!indexes.contains(
+                    String.format("%s/%s", root, this.file)
+                )) {
+                    Logger.info(
+                        this, "#covers(%s): no %s in %s",
+                        pkg, this.file, root
+                    );
+                    covers = false;
+                }
+            }
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return covers;
+    }
+
+    /**
+     * Names of classes listed in indexes of a package, in all parts of
+     * classpath.
+     * @param pkg Name of the package
+     * @return Binary names of classes, like {@code foo.Outer$Inner}
+     */
+    public Collection<String> names(@NotNull final String pkg) {
+        final String path = this.path(pkg);
+        final Collection<String> names = new LinkedHashSet<String>(0);
+        try {
+            final Collection<URL> urls =
+                Collections.list(ClassIndex.loader().getResources(path));
+            if (urls.isEmpty()) {
+                throw new IllegalStateException(
+                    Logger.format("'%s' not found in classpath", path)
+                );
+            }
+            for (final URL url : urls) {
+                final InputStream stream = url.openStream();
+                try {
+                    for (final String line
+                        : IOUtils.readLines(stream, CharEncoding.UTF_8)) {
+                        final String name = line.trim();
+                        if (!name.isEmpty() && name.charAt(0) != '#') {
+                            names.add(
+                                String.format(
+                                    "%s.%s", pkg, name.replace('.', '$')
+                                )
+                            );
+                        }
+                    }
+                } finally {
+                    IOUtils.closeQuietly(stream);
+                }
+            }
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return names;
+    }
+
+    /**
+     * Load classes listed in the index of a package.
+     * @param pkg Name of the package
+     * @return Classes found
+     */
+    public Collection<Class<?>> classes(@NotNull final String pkg) {
+        final Collection<Class<?>> found = new LinkedList<Class<?>>();
+        try {
+            for (final String name : this.names(pkg)) {
+                found.add(Class.forName(name, true, ClassIndex.loader()));
+            }
+        } catch (final ClassNotFoundException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return found;
+    }
+
+    /**
+     * Path of index file in classpath.
+     * @param pkg Name of the package
+     * @return Path
+     */
+    private String path(final String pkg) {
+        return String.format("%s/%s", pkg.replace('.', '/'), this.file);
+    }
+
+    /**
+     * Class loader to find indexes and classes with.
+     * @return Loader
+     */
+    private static ClassLoader loader() {
+        return Thread.currentThread().getContextClassLoader();
+    }
+
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import javax.ws.rs.core.MediaType;
+import lombok.EqualsAndHashCode;
+
+/**
+ * HTTP client, as seen in {@code User-Agent} and {@code Accept} headers
+ * of its request.
+ *
+ * <p>Headers are parsed and the decision is made once, in the constructor,
+ * that's why an instance may be cached by {@link ClientCache} and shared
+ * between all requests with the same headers. A client which has proven
+ * that it is capable of XSLT (see {@link Probe}) gets XML no matter
+ * what its {@code User-Agent} header says.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@EqualsAndHashCode(of = { "agent", "accept", "proven" })
+final class Client {
+
+    /**
+     * User agent.
+     */
+    private final transient UserAgent agent;
+
+    /**
+     * Accepted media types.
+     */
+    private final transient TypesMatcher accept;
+
+    /**
+     * Has it proven that it is capable of XSLT?
+     */
+    private final transient boolean proven;
+
+    /**
+     * Does the client demand XML?
+     */
+    private final transient boolean xml;
+
+    /**
+     * Can the client transform XML itself?
+     */
+    private final transient boolean xsl;
+
+    /**
+     * Public ctor.
+     * @param agnt Value of {@code User-Agent} header or NULL if absent
+     * @param acpt Value of {@code Accept} header or NULL if absent
+     */
+    Client(final String agnt, final String acpt) {
+        this(agnt, acpt, XsltCapabilities.DEFAULT, false);
+    }
+
+    /**
+     * Public ctor.
+     * @param agnt Value of {@code User-Agent} header or NULL if absent
+     * @param acpt Value of {@code Accept} header or NULL if absent
+     * @param caps Table of agents capable of XSLT
+     * @param prvn Has it proven that it is capable of XSLT?
+     * @checkstyle ParameterNumber (3 lines)
+     */
+    Client(final String agnt, final String acpt,
+        final XsltCapabilities caps, final boolean prvn) {
+        this.agent = new UserAgent(agnt, caps);
+        this.proven = prvn;
+        this.accept = new TypesMatcher(acpt);
+        this.xml = this.xmlDemanded();
+        this.xsl = this.xslAccepted();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "User-Agent='%s', Accept='%s', proven=%B",
+            this.agent, this.accept, this.proven
+        );
+    }
+
+    /**
+     * Does it need HTML instead of XML with XSL stylesheet?
+     * @return TRUE if XML has to be transformed on server
+     */
+    public boolean needsHtml() {
+        return this.needsHtml(true);
+    }
+
+    /**
+     * Does it need HTML instead of XML with XSL stylesheet?
+     * @param offload Should XML be transformed by the client, if it can?
+     * @return TRUE if XML has to be transformed on server
+     * @since 2.0
+     */
+    public boolean needsHtml(final boolean offload) {
+        return !this.xml && !(offload && this.xsl);
+    }
+
+    /**
+     * Page doesn't require transformation, since XML media type is
+     * explicitly required?
+     * @return TRUE if XML is required
+     */
+    private boolean xmlDemanded() {
+        return this.accept.explicit(MediaType.APPLICATION_XML)
+            || this.accept.explicit(MediaType.TEXT_XML);
+    }
+
+    /**
+     * Page doesn't require transformation, since XSL is welcome by
+     * the client?
+     * @return TRUE if the client can transform XML itself
+     */
+    private boolean xslAccepted() {
+        return (this.proven || this.agent.isXsltCapable())
+            && (this.accept.accepts(MediaType.APPLICATION_XML)
+            || this.accept.accepts(MediaType.TEXT_XML));
+    }
+
+}
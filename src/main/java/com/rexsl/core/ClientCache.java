@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Bounded cache of {@link Client}s, keyed by raw values of their
+ * {@code User-Agent} and {@code Accept} headers.
+ *
+ * <p>The number of distinct values of these headers is small, that's why
+ * they are parsed only once, and analysis of a request is a single hash
+ * lookup. When the cache is full the least recently used client
+ * is evicted, in constant time, since the map is kept in access order.
+ *
+ * <p>Clients which have proven that they are capable of XSLT
+ * (see {@link Probe}) are cached separately.
+ *
+ * <p>The class is thread-safe. The same client may be parsed twice
+ * in parallel, which is harmless, since they are equal.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "max", "hits", "misses" })
+@EqualsAndHashCode(of = "max")
+final class ClientCache {
+
+    /**
+     * Load factor of the map.
+     */
+    private static final float LOAD = 0.75f;
+
+    /**
+     * Maximum number of clients to keep.
+     */
+    private final transient int max;
+
+    /**
+     * Table of agents capable of XSLT.
+     */
+    private final transient XsltCapabilities table;
+
+    /**
+     * Parsed clients, by their headers, in access order.
+     */
+    private final transient Map<ClientCache.Key, Client> entries =
+        new LinkedHashMap<ClientCache.Key, Client>(0, ClientCache.LOAD, true);
+
+    /**
+     * How many times a client was found in cache.
+     */
+    private final transient AtomicLong hits = new AtomicLong();
+
+    /**
+     * How many times a client had to be parsed.
+     */
+    private final transient AtomicLong misses = new AtomicLong();
+
+    /**
+     * Public ctor.
+     * @param size Maximum number of clients to keep (zero means that
+     *  nothing is cached)
+     */
+    ClientCache(final int size) {
+        this(size, XsltCapabilities.DEFAULT);
+    }
+
+    /**
+     * Public ctor.
+     * @param size Maximum number of clients to keep (zero means that
+     *  nothing is cached)
+     * @param caps Table of agents capable of XSLT
+     */
+    ClientCache(final int size, @NotNull final XsltCapabilities caps) {
+        this.max = size;
+        this.table = caps;
+    }
+
+    /**
+     * Get client by its headers, parsing them only if necessary.
+     * @param agent Value of {@code User-Agent} header or NULL if absent
+     * @param accept Value of {@code Accept} header or NULL if absent
+     * @return Client
+     */
+    public Client get(final String agent, final String accept) {
+        return this.get(agent, accept, false);
+    }
+
+    /**
+     * Get client by its headers, parsing them only if necessary.
+     * @param agent Value of {@code User-Agent} header or NULL if absent
+     * @param accept Value of {@code Accept} header or NULL if absent
+     * @param proven Has it proven that it is capable of XSLT?
+     * @return Client
+     */
+    public Client get(final String agent, final String accept,
+        final boolean proven) {
+        final ClientCache.Key key = new ClientCache.Key(agent, accept, proven);
+        Client client = null;
+        if (this.max > 0) {
+            synchronized (this.entries) {
+                client = this.entries.get(key);
+            }
+        }
+        if (client == null) {
+            this.misses.incrementAndGet();
+            client = new Client(agent, accept, this.table, proven);
+            if (this.max > 0) {
+                this.put(key, client);
+            }
+        } else {
+            this.hits.incrementAndGet();
+        }
+        return client;
+    }
+
+    /**
+     * Total number of hits.
+     * @return Hits
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Total number of misses.
+     * @return Misses
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Number of clients currently in cache.
+     * @return Total
+     */
+    public int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    /**
+     * Add parsed client and remove least recently used ones, if there
+     * are too many.
+     * @param key Key of the client
+     * @param client Parsed client, which is never evicted here
+     */
+    private void put(final ClientCache.Key key, final Client client) {
+        synchronized (this.entries) {
+            this.entries.put(key, client);
+            final Iterator<Client> iterator =
+                this.entries.values().iterator();
+            while (this.entries.size() > this.max) {
+                Logger.debug(
+                    this, "#put(): %s evicted", iterator.next()
+                );
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Key of a client.
+     */
+    @EqualsAndHashCode(of = { "agent", "accept", "proven" })
+    private static final class Key {
+        /**
+         * Value of {@code User-Agent} header or NULL.
+         */
+        private final transient String agent;
+        /**
+         * Value of {@code Accept} header or NULL.
+         */
+        private final transient String accept;
+        /**
+         * Has it proven that it is capable of XSLT?
+         */
+        private final transient boolean proven;
+        /**
+         * Public ctor.
+         * @param agnt User agent
+         * @param acpt Accepted types
+         * @param prvn Proven capability
+         */
+        Key(final String agnt, final String acpt, final boolean prvn) {
+            this.agent = agnt;
+            this.accept = acpt;
+            this.proven = prvn;
+        }
+    }
+
+}
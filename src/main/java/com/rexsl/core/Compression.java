@@ -0,0 +1,461 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.aspects.Tv;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Compression of responses, negotiated by {@code Accept-Encoding}.
+ *
+ * <p>Both {@code gzip} and {@code deflate} content codings are supported,
+ * {@code gzip} is preferred. {@link Deflater}-s are expensive to create,
+ * that's why they are pooled and reused, separately for every coding.
+ *
+ * <p>Codings listed in {@code Accept-Encoding} explicitly take precedence
+ * over {@code *}, and {@code identity} is acceptable unless it is refused
+ * with {@code q=0} (explicitly or by {@code *;q=0}). When the client
+ * refuses {@code identity} and doesn't accept any coding, a supported
+ * coding it didn't refuse is used, or {@code identity} anyway if it
+ * refused all of them (as RFC 7231, section 5.3.4, suggests).
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "level")
+@EqualsAndHashCode(of = "level")
+final class Compression {
+
+    /**
+     * Gzip coding.
+     */
+    public static final String GZIP = "gzip";
+
+    /**
+     * Deflate coding.
+     */
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * No coding.
+     */
+    public static final String IDENTITY = "identity";
+
+    /**
+     * Any coding, in {@code Accept-Encoding} header.
+     */
+    private static final String ANY = "*";
+
+    /**
+     * Maximum number of deflaters to keep in every pool.
+     */
+    private static final int POOL = 64;
+
+    /**
+     * Size of the buffer of compressed data.
+     */
+    private static final int BUFFER = 8192;
+
+    /**
+     * Mask of the lowest byte.
+     */
+    private static final int MASK = 0xff;
+
+    /**
+     * Gzip header, without flags, time and OS.
+     */
+    private static final byte[] HEADER = {
+        (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED,
+        0, 0, 0, 0, 0, 0, 0,
+    };
+
+    /**
+     * Compression level, zero means that compression is disabled.
+     */
+    private final transient int level;
+
+    /**
+     * Deflaters for gzip, without zlib wrapping.
+     */
+    private final transient Compression.Pool gzips;
+
+    /**
+     * Deflaters for deflate, with zlib wrapping.
+     */
+    private final transient Compression.Pool deflates;
+
+    /**
+     * Public ctor.
+     * @param lvl Compression level, from 1 to 9, zero disables compression
+     */
+    Compression(final int lvl) {
+        if (lvl < 0 || lvl > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException(
+                String.format("invalid compression level %d", lvl)
+            );
+        }
+        this.level = lvl;
+        this.gzips = new Compression.Pool(lvl, true);
+        this.deflates = new Compression.Pool(lvl, false);
+    }
+
+    /**
+     * Is compression enabled?
+     * @return TRUE if it is
+     */
+    public boolean isEnabled() {
+        return this.level > 0;
+    }
+
+    /**
+     * Choose content coding acceptable by the client.
+     * @param header Value of {@code Accept-Encoding} header, or NULL
+     * @return Coding, {@link #IDENTITY} if no compression is acceptable
+     *  or if it is disabled
+     */
+    @NotNull
+    public String negotiate(final String header) {
+        String coding = Compression.IDENTITY;
+        if (this.isEnabled() && header != null) {
+            final Map<String, Boolean> listed = Compression.parse(header);
+            final String[] codings = {
+                Compression.GZIP, Compression.DEFLATE, Compression.IDENTITY,
+            };
+            boolean found = false;
+            for (final String name : codings) {
+                if (Compression.accepted(listed, name)) {
+                    coding = name;
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                for (final String name : codings) {
+                    if (!listed.containsKey(name)
+                        && !listed.containsKey(Compression.ANY)) {
+                        coding = name;
+                        break;
+                    }
+                }
+            }
+        }
+        return coding;
+    }
+
+    /**
+     * Open a stream that compresses everything written to it.
+     *
+     * <p>The stream must be closed, in order to finish compression and
+     * return the deflater to the pool. The target stream is flushed but
+     * is not closed.
+     *
+     * @param coding Content coding
+     * @param target Where to write compressed data
+     * @return Stream to write into
+     */
+    @NotNull
+    public OutputStream open(@NotNull final String coding,
+        @NotNull final OutputStream target) {
+        final OutputStream stream;
+        if (Compression.GZIP.equals(coding)) {
+            stream = new Compression.Deflated(target, this.gzips, true);
+        } else if (Compression.DEFLATE.equals(coding)) {
+            stream = new Compression.Deflated(target, this.deflates, false);
+        } else {
+            stream = new Compression.Shield(target);
+        }
+        return stream;
+    }
+
+    /**
+     * Compress data.
+     * @param coding Content coding
+     * @param data Data to compress
+     * @return Compressed data
+     */
+    @NotNull
+    public byte[] compress(@NotNull final String coding,
+        @NotNull final byte[] data) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(
+            data.length / Tv.FOUR
+        );
+        try {
+            final OutputStream stream = this.open(coding, output);
+            try {
+                stream.write(data);
+            } finally {
+                stream.close();
+            }
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Parse {@code Accept-Encoding} header.
+     * @param header Value of the header
+     * @return Codings listed in it, and whether they are acceptable
+     */
+    private static Map<String, Boolean> parse(final String header) {
+        final Map<String, Boolean> listed = new HashMap<String, Boolean>(0);
+        for (final String part : header.split(",")) {
+            final String[] params = part.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ENGLISH);
+            if ("x-gzip".equals(name)) {
+                name = Compression.GZIP;
+            }
+            if (!name.isEmpty()) {
+                listed.put(name, Compression.accepted(params));
+            }
+        }
+        return listed;
+    }
+
+    /**
+     * Is this coding acceptable, according to the header?
+     *
+     * <p>Explicit coding takes precedence over {@code *}. If neither of
+     * them is listed, only {@code identity} is acceptable.
+     *
+     * @param listed Codings listed in the header
+     * @param name Name of the coding
+     * @return TRUE if it is acceptable
+     */
+    private static boolean accepted(final Map<String, Boolean> listed,
+        final String name) {
+        Boolean accepted = listed.get(name);
+        if (accepted == null) {
+            accepted = listed.get(Compression.ANY);
+        }
+        if (accepted == null) {
+            accepted = Compression.IDENTITY.equals(name);
+        }
+        return accepted;
+    }
+
+    /**
+     * Is this coding acceptable, according to its quality value?
+     * @param params Coding and its parameters
+     * @return TRUE if quality is not zero
+     */
+    private static boolean accepted(final String[] params) {
+        boolean accepted = true;
+        for (int idx = 1; idx < params.length; ++idx) {
+            final String param = params[idx].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    accepted = Double.parseDouble(param.substring(2)) > 0;
+                } catch (final NumberFormatException ex) {
+                    accepted = false;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Pool of deflaters.
+     */
+    private static final class Pool {
+        /**
+         * Compression level.
+         */
+        private final transient int level;
+        /**
+         * Without zlib wrapping?
+         */
+        private final transient boolean nowrap;
+        /**
+         * Deflaters available.
+         */
+        private final transient Queue<Deflater> free =
+            new ConcurrentLinkedQueue<Deflater>();
+        /**
+         * Number of deflaters available.
+         */
+        private final transient AtomicInteger count = new AtomicInteger();
+        /**
+         * Public ctor.
+         * @param lvl Compression level
+         * @param raw Without zlib wrapping?
+         */
+        Pool(final int lvl, final boolean raw) {
+            this.level = lvl;
+            this.nowrap = raw;
+        }
+        /**
+         * Take a deflater, creating it if necessary.
+         * @return Deflater
+         */
+        public Deflater take() {
+            Deflater deflater = this.free.poll();
+            if (deflater == null) {
+                deflater = new Deflater(this.level, this.nowrap);
+            } else {
+                this.count.decrementAndGet();
+            }
+            return deflater;
+        }
+        /**
+         * Return deflater to the pool, or release it if the pool is full.
+         * @param deflater The deflater
+         */
+        public void release(final Deflater deflater) {
+            if (this.count.incrementAndGet() > Compression.POOL) {
+                this.count.decrementAndGet();
+                deflater.end();
+            } else {
+                deflater.reset();
+                this.free.offer(deflater);
+            }
+        }
+    }
+
+    /**
+     * Stream that compresses with a pooled deflater.
+     */
+    private static final class Deflated extends DeflaterOutputStream {
+        /**
+         * Pool to return the deflater to.
+         */
+        private final transient Compression.Pool pool;
+        /**
+         * Checksum of uncompressed data, for gzip only, or NULL.
+         */
+        private final transient CRC32 crc;
+        /**
+         * Is it closed already?
+         */
+        private transient boolean closed;
+        /**
+         * Public ctor.
+         * @param target Where to write compressed data
+         * @param src Pool of deflaters
+         * @param gzip Write gzip header and trailer?
+         */
+        Deflated(final OutputStream target, final Compression.Pool src,
+            final boolean gzip) {
+            super(target, src.take(), Compression.BUFFER);
+            this.pool = src;
+            if (gzip) {
+                this.crc = new CRC32();
+                try {
+                    target.write(Compression.HEADER);
+                } catch (final IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            } else {
+                this.crc = null;
+            }
+        }
+        @Override
+        public void write(final byte[] data, final int off, final int len)
+            throws IOException {
+            super.write(data, off, len);
+            if (this.crc != null) {
+                this.crc.update(data, off, len);
+            }
+        }
+        @Override
+        public void finish() throws IOException {
+            super.finish();
+            if (this.crc != null) {
+                Deflated.writeInt(this.out, this.crc.getValue());
+                Deflated.writeInt(this.out, this.def.getBytesRead());
+            }
+        }
+        @Override
+        public void close() throws IOException {
+            if (!this.closed) {
+                this.closed = true;
+                try {
+                    this.finish();
+                    this.out.flush();
+                } finally {
+                    this.pool.release(this.def);
+                }
+            }
+        }
+        /**
+         * Write lower 32 bits of the number, in little endian order.
+         * @param out Where to write
+         * @param num The number
+         * @throws IOException If fails
+         */
+        private static void writeInt(final OutputStream out, final long num)
+            throws IOException {
+            for (int idx = 0; idx < Tv.FOUR; ++idx) {
+                out.write((int) (num >> (idx * Tv.EIGHT)) & Compression.MASK);
+            }
+        }
+    }
+
+    /**
+     * Stream that doesn't close the target, only flushes it.
+     */
+    private static final class Shield extends FilterOutputStream {
+        /**
+         * Public ctor.
+         * @param target Target stream
+         */
+        Shield(final OutputStream target) {
+            super(target);
+        }
+        @Override
+        public void write(final byte[] data, final int off, final int len)
+            throws IOException {
+            this.out.write(data, off, len);
+        }
+        @Override
+        public void close() throws IOException {
+            this.out.flush();
+        }
+    }
+
+}
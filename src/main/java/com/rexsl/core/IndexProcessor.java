@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import javax.ws.rs.Path;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.lang3.CharEncoding;
+
+/**
+ * Annotation processor, which generates indexes of JAXB and JAX-RS
+ * classes at build time.
+ *
+ * <p>For every package with classes annotated with {@link XmlRootElement}
+ * it generates {@code jaxb.index} file, and for every package with classes
+ * annotated with {@link Path} or {@link Provider} it generates
+ * {@code jaxrs.index} file. {@link RestfulServlet} doesn't scan packages
+ * which have the latter, and {@link XslResolver} adds classes listed in
+ * the former to JAXB context on start. Generated files replace the files
+ * with the same names in {@code src/main/resources}. Nested classes are
+ * listed with a dot, like {@code Outer.Inner}, as JAXB expects.
+ *
+ * <p>The processor is not registered as a service, in order not to
+ * interfere with the build of the project, use it explicitly in
+ * {@code pom.xml} (listing there all other processors the project needs,
+ * since explicit list disables their discovery):
+ *
+ * <pre> &lt;plugin>
+ *  &lt;artifactId>maven-compiler-plugin&lt;/artifactId>
+ *  &lt;configuration>
+ *   &lt;annotationProcessors>
+ *    &lt;processor>com.rexsl.core.IndexProcessor&lt;/processor>
+ *   &lt;/annotationProcessors>
+ *  &lt;/configuration>
+ * &lt;/plugin></pre>
+ *
+ * <p>All classes of a package have to be compiled together, since the
+ * index is made of the classes seen by the processor.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString
+@EqualsAndHashCode(callSuper = false, of = { "jaxb", "jaxrs" })
+@SupportedAnnotationTypes({
+    "javax.xml.bind.annotation.XmlRootElement",
+    "javax.ws.rs.Path",
+    "javax.ws.rs.ext.Provider"
+})
+public final class IndexProcessor extends AbstractProcessor {
+
+    /**
+     * JAXB classes, by packages.
+     */
+    private final transient Map<String, Set<String>> jaxb =
+        new TreeMap<String, Set<String>>();
+
+    /**
+     * JAX-RS classes, by packages.
+     */
+    private final transient Map<String, Set<String>> jaxrs =
+        new TreeMap<String, Set<String>>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations,
+        final RoundEnvironment env) {
+        if (env.processingOver()) {
+            this.write(this.jaxb, ClassIndex.JAXB);
+            this.write(this.jaxrs, ClassIndex.JAXRS);
+        } else {
+            for (final Element elm
+                : env.getElementsAnnotatedWith(XmlRootElement.class)) {
+                this.add(this.jaxb, elm);
+            }
+            for (final Element elm : env.getElementsAnnotatedWith(Path.class)) {
+                this.add(this.jaxrs, elm);
+            }
+            for (final Element elm
+                : env.getElementsAnnotatedWith(Provider.class)) {
+                this.add(this.jaxrs, elm);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add class to the index, if it's a concrete class.
+     * @param index The index
+     * @param elm Annotated element
+     */
+    private void add(final Map<String, Set<String>> index,
+        final Element elm) {
+        if (elm.getKind() == ElementKind.CLASS
+            && !elm.getModifiers().contains(Modifier.ABSTRACT)) {
+            final TypeElement type = TypeElement.class.cast(elm);
+            final String pkg = this.processingEnv.getElementUtils()
+                .getPackageOf(type).getQualifiedName().toString();
+            final String name = type.getQualifiedName().toString();
+            if (!index.containsKey(pkg)) {
+                index.put(pkg, new TreeSet<String>());
+            }
+            if (pkg.isEmpty()) {
+                index.get(pkg).add(name);
+            } else {
+                index.get(pkg).add(name.substring(pkg.length() + 1));
+            }
+        }
+    }
+
+    /**
+     * Write index files.
+     * @param index The index
+     * @param file Name of index file
+     */
+    private void write(final Map<String, Set<String>> index,
+        final String file) {
+        for (final Map.Entry<String, Set<String>> entry : index.entrySet()) {
+            try {
+                final Writer writer = new OutputStreamWriter(
+                    this.processingEnv.getFiler().createResource(
+                        StandardLocation.CLASS_OUTPUT, entry.getKey(), file
+                    ).openOutputStream(),
+                    CharEncoding.UTF_8
+                );
+                try {
+                    writer.write("# generated by ");
+                    writer.write(IndexProcessor.class.getName());
+                    writer.write('\n');
+                    for (final String name : entry.getValue()) {
+                        writer.write(name);
+                        writer.write('\n');
+                    }
+                } finally {
+                    writer.close();
+                }
+            } catch (final IOException ex) {
+                this.processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    String.format(
+                        "failed to write %s of '%s': %s",
+                        file, entry.getKey(), ex.getMessage()
+                    )
+                );
+            }
+        }
+        index.clear();
+    }
+
+}
@@ -33,7 +33,6 @@ import com.jcabi.aspects.Loggable;
 import com.jcabi.log.Logger;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.core.HttpHeaders;
-import javax.ws.rs.core.MediaType;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
@@ -41,18 +40,25 @@ import lombok.ToString;
  * Makes a decision whether page should be transformed to HTML or returned
  * to the user as untouched XML (or anything else).
  *
+ * <p>Only {@link Prolog} of the page is analyzed, which is read from
+ * the raw bytes of it until the root element. Headers of the request
+ * are analyzed by {@link Client}, which is taken from {@link ClientCache},
+ * together with the capability cookie checked by {@link Probe}. Pages of
+ * capable clients are transformed by them only if {@link Placement}
+ * says so.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  */
 @ToString
-@EqualsAndHashCode(of = { "page", "request" })
+@EqualsAndHashCode(of = { "prolog", "request" })
 @Loggable(Loggable.DEBUG)
 final class PageAnalyzer {
 
     /**
-     * The page.
+     * Prolog of the page.
      */
-    private final transient String page;
+    private final transient Prolog prolog;
 
     /**
      * The request.
@@ -60,78 +66,78 @@ final class PageAnalyzer {
     private final transient HttpServletRequest request;
 
     /**
-     * Public ctor.
-     * @param text The text of response
-     * @param rqst The request
+     * Parsed clients.
      */
-    PageAnalyzer(final String text, final HttpServletRequest rqst) {
-        this.page = text;
-        this.request = rqst;
-    }
+    private final transient ClientCache clients;
 
     /**
-     * Do we need filtering?
-     * @return Do we need to transform to XHTML?
+     * Probe of client-side XSLT capability.
      */
-    public boolean needsTransformation() {
-        final UserAgent agent = new UserAgent(
-            this.request.getHeader(HttpHeaders.USER_AGENT)
-        );
-        final TypesMatcher accept = new TypesMatcher(
-            this.request.getHeader(HttpHeaders.ACCEPT)
-        );
-        // @checkstyle BooleanExpressionComplexity (1 line)
-        final boolean needs = this.notEmpty() && this.containsXml()
-            && !this.xmlDemanded(accept)
-            && !this.xslAccepted(agent, accept);
-        Logger.debug(
-            this,
-            // @checkstyle LineLength (1 line)
-            "#needsTransformation('%s': '%[text]s'): User-Agent='%s', Accept='%s', %B",
-            this.request.getRequestURI(), this.page,
-            agent, accept, needs
-        );
-        return needs;
-    }
+    private final transient Probe probe;
 
     /**
-     * Page require transformation, since it's not an empty page?
-     * @return TRUE if the page requires transformation
+     * Placement of transformation.
      */
-    private boolean notEmpty() {
-        return !this.page.isEmpty();
+    private final transient Placement placement;
+
+    /**
+     * Public ctor.
+     * @param prlg Prolog of the response
+     * @param rqst The request
+     */
+    PageAnalyzer(final Prolog prlg, final HttpServletRequest rqst) {
+        this(
+            prlg, rqst, new ClientCache(0), new Probe(null), new Placement()
+        );
     }
 
     /**
-     * Page require transformation, since it contains XML and XSL stylesheet?
-     * @return TRUE if the page requires transformation
+     * Public ctor.
+     * @param prlg Prolog of the response
+     * @param rqst The request
+     * @param cache Parsed clients
+     * @param prb Probe of client-side XSLT capability
+     * @param plc Placement of transformation
+     * @since 2.0
+     * @checkstyle ParameterNumber (4 lines)
      */
-    private boolean containsXml() {
-        return this.page.startsWith("<?xml ")
-            && this.page.contains("<?xml-stylesheet ");
+    PageAnalyzer(final Prolog prlg, final HttpServletRequest rqst,
+        final ClientCache cache, final Probe prb, final Placement plc) {
+        this.prolog = prlg;
+        this.request = rqst;
+        this.clients = cache;
+        this.probe = prb;
+        this.placement = plc;
     }
 
     /**
-     * Page requires transformation, since XML media type is not required?
-     * @param types Media types
-     * @return TRUE if the page requires transformation
+     * Do we need filtering?
+     * @return Do we need to transform to XHTML?
      */
-    private boolean xmlDemanded(final TypesMatcher types) {
-        return types.explicit(MediaType.APPLICATION_XML)
-            || types.explicit(MediaType.TEXT_XML);
+    public boolean needsTransformation() {
+        boolean needs = this.containsXml();
+        if (needs) {
+            final Client client = this.clients.get(
+                this.request.getHeader(HttpHeaders.USER_AGENT),
+                this.request.getHeader(HttpHeaders.ACCEPT),
+                this.probe.isProven(this.request)
+            );
+            needs = client.needsHtml(this.placement.offloads());
+            Logger.debug(
+                this,
+                "#needsTransformation('%s': %s): %s, %B",
+                this.request.getRequestURI(), this.prolog, client, needs
+            );
+        }
+        return needs;
     }
 
     /**
-     * Page requires transformation, since XSL is not welcome by the client?
-     * @param agent User agent of the client
-     * @param types Media types
+     * Page require transformation, since it contains XML and XSL stylesheet?
      * @return TRUE if the page requires transformation
      */
-    private boolean xslAccepted(final UserAgent agent,
-        final TypesMatcher types) {
-        return agent.isXsltCapable()
-            && (types.accepts(MediaType.APPLICATION_XML)
-            || types.accepts(MediaType.TEXT_XML));
+    private boolean containsXml() {
+        return this.prolog.isDeclared() && this.prolog.hasStylesheet();
     }
 
 }
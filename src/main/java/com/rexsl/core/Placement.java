@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Placement of XSL transformation, either on server or on client.
+ *
+ * <p>Pages for clients capable of XSLT are transformed by them while
+ * the server is loaded, and on server while it is idle, for a faster first
+ * paint. The mode is switched to client when {@link Load} reaches
+ * the {@code high} level and back to server only when it drops to
+ * the {@code low} level, in order not to flip on every fluctuation.
+ * The load is checked not more often than once a second.
+ *
+ * <p>Without a load signal pages of capable clients are always
+ * transformed by them.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "low", "high", "offload" })
+@EqualsAndHashCode(of = { "load", "low", "high" })
+final class Placement implements PlacementMBean {
+
+    /**
+     * Delay between checks of the load, in nanoseconds.
+     */
+    private static final long DELAY = TimeUnit.SECONDS.toNanos(1L);
+
+    /**
+     * Load signal or NULL if placement is not adaptive.
+     */
+    private final transient Load load;
+
+    /**
+     * Level to switch to server at.
+     */
+    private final transient double low;
+
+    /**
+     * Level to switch to client at.
+     */
+    private final transient double high;
+
+    /**
+     * When the load was checked last time, in nanoseconds.
+     */
+    private final transient AtomicLong checked =
+        new AtomicLong(System.nanoTime() - Placement.DELAY);
+
+    /**
+     * How many times the mode was switched.
+     */
+    private final transient AtomicLong switches = new AtomicLong();
+
+    /**
+     * Load level seen last time.
+     */
+    private transient volatile double level;
+
+    /**
+     * Are pages of capable clients transformed by them?
+     */
+    private transient volatile boolean offload;
+
+    /**
+     * Public ctor, for placement which always transforms on client.
+     */
+    Placement() {
+        this(null, 0.0d, 0.0d);
+    }
+
+    /**
+     * Public ctor.
+     * @param signal Load signal or NULL if placement is not adaptive
+     * @param lower Level to switch to server at
+     * @param higher Level to switch to client at
+     */
+    Placement(final Load signal, final double lower, final double higher) {
+        if (lower > higher) {
+            throw new IllegalArgumentException(
+                Logger.format(
+                    "low level %.2f is higher than high level %.2f",
+                    lower, higher
+                )
+            );
+        }
+        this.load = signal;
+        this.low = lower;
+        this.high = higher;
+        this.offload = signal == null;
+    }
+
+    /**
+     * Should pages of capable clients be transformed by them?
+     * @return TRUE if they should get XML
+     */
+    public boolean offloads() {
+        final long now = System.nanoTime();
+        final long last = this.checked.get();
+        if (this.load != null && now - last >= Placement.DELAY
+            && this.checked.compareAndSet(last, now)) {
+            this.level = this.load.level();
+            final boolean before = this.offload;
+            if (before && this.level <= this.low) {
+                this.offload = false;
+            } else if (!before && this.level >= this.high) {
+                this.offload = true;
+            }
+            if (before != this.offload) {
+                this.switches.incrementAndGet();
+                Logger.info(
+                    this, "#offloads(): load is %.2f, transforming on %s",
+                    this.level, this.getMode()
+                );
+            }
+        }
+        return this.offload;
+    }
+
+    @Override
+    public String getMode() {
+        final String mode;
+        if (this.offload) {
+            mode = "client";
+        } else {
+            mode = "server";
+        }
+        return mode;
+    }
+
+    @Override
+    public double getLevel() {
+        return this.level;
+    }
+
+    @Override
+    public long getSwitches() {
+        return this.switches.get();
+    }
+
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.MarshalException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.PropertyException;
+import javax.xml.bind.ValidationEventHandler;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.attachment.AttachmentMarshaller;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Result;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import org.w3c.dom.Node;
+import org.xml.sax.ContentHandler;
+
+/**
+ * Marshaller, which borrows a configured one from a pool and returns
+ * it back after marshalling.
+ *
+ * <p>A new instance is made by {@link XslResolver} for every response,
+ * but the real marshaller behind it, which is expensive to configure,
+ * is reused. It is returned to the pool after every {@code marshal()},
+ * unless it was re-configured by the client (with {@code setProperty()},
+ * {@code setSchema()}, etc.), in which case it is kept by this instance
+ * and never returned. When the pool is empty a new marshaller is made;
+ * when it is full, the marshaller is dropped.
+ *
+ * <p>When the response is sampled for {@link XsdAudit}, XML marshalled
+ * to a stream or a writer is first kept in memory, and its copy is
+ * validated in background, after it is sent further.
+ *
+ * <p>The class is not thread-safe, just like any other {@link Marshaller}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ * @checkstyle MethodCount (500 lines)
+ */
+@SuppressWarnings({ "PMD.TooManyMethods", "rawtypes", "unchecked" })
+final class PooledMarshaller implements Marshaller {
+
+    /**
+     * Property of JAXB RI marshaller with XML headers.
+     */
+    public static final String HEADERS = "com.sun.xml.bind.xmlHeaders";
+
+    /**
+     * Pool of configured marshallers.
+     */
+    private final transient Queue<Marshaller> pool;
+
+    /**
+     * Factory of configured marshallers.
+     */
+    private final transient Callable<Marshaller> factory;
+
+    /**
+     * Borrowed marshaller or NULL if it was returned.
+     */
+    private transient Marshaller origin;
+
+    /**
+     * Sample to validate or NULL if this response is not sampled.
+     */
+    private final transient XsdAudit.Sample sample;
+
+    /**
+     * Header to set to every borrowed marshaller or NULL.
+     */
+    private final transient String header;
+
+    /**
+     * Was it re-configured?
+     */
+    private transient boolean dirty;
+
+    /**
+     * Public ctor.
+     * @param queue Pool of configured marshallers, bounded
+     * @param fct Factory of configured marshallers
+     */
+    PooledMarshaller(@NotNull final Queue<Marshaller> queue,
+        @NotNull final Callable<Marshaller> fct) {
+        this(queue, fct, null);
+    }
+
+    /**
+     * Public ctor.
+     * @param queue Pool of configured marshallers, bounded
+     * @param fct Factory of configured marshallers
+     * @param smpl Sample to validate or NULL
+     */
+    PooledMarshaller(@NotNull final Queue<Marshaller> queue,
+        @NotNull final Callable<Marshaller> fct,
+        final XsdAudit.Sample smpl) {
+        this(queue, fct, smpl, null);
+    }
+
+    /**
+     * Public ctor.
+     *
+     * <p>The header is set to every marshaller borrowed from the pool,
+     * since it depends on the request (for example, on its host name),
+     * while marshallers in the pool don't. It is not set again if the
+     * marshaller has it already, from the previous response.
+     *
+     * @param queue Pool of configured marshallers, bounded
+     * @param fct Factory of configured marshallers
+     * @param smpl Sample to validate or NULL
+     * @param hdr XML header of this response or NULL
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    PooledMarshaller(@NotNull final Queue<Marshaller> queue,
+        @NotNull final Callable<Marshaller> fct,
+        final XsdAudit.Sample smpl, final String hdr) {
+        this.pool = queue;
+        this.factory = fct;
+        this.sample = smpl;
+        this.header = hdr;
+        this.origin = this.borrow();
+    }
+
+    @Override
+    public void marshal(final Object obj, final Result result)
+        throws JAXBException {
+        try {
+            this.marshaller().marshal(obj, result);
+        } finally {
+            this.release();
+        }
+    }
+
+    @Override
+    public void marshal(final Object obj, final OutputStream stream)
+        throws JAXBException {
+        try {
+            if (this.sample == null) {
+                this.marshaller().marshal(obj, stream);
+            } else {
+                final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+                this.marshaller().marshal(obj, copy);
+                try {
+                    copy.writeTo(stream);
+                } catch (final IOException ex) {
+                    throw new MarshalException(ex);
+                }
+                this.sample.check(
+                    new StreamSource(
+                        new ByteArrayInputStream(copy.toByteArray())
+                    )
+                );
+            }
+        } finally {
+            this.release();
+        }
+    }
+
+    @Override
+    public void marshal(final Object obj, final File file)
+        throws JAXBException {
+        try {
+            this.marshaller().marshal(obj, file);
+        } finally {
+            this.release();
+        }
+    }
+
+    @Override
+    public void marshal(final Object obj, final Writer writer)
+        throws JAXBException {
+        try {
+            if (this.sample == null) {
+                this.marshaller().marshal(obj, writer);
+            } else {
+                final StringWriter copy = new StringWriter();
+                this.marshaller().marshal(obj, copy);
+                try {
+                    writer.write(copy.toString());
+                } catch (final IOException ex) {
+                    throw new MarshalException(ex);
+                }
+                this.sample.check(
+                    new StreamSource(new StringReader(copy.toString()))
+                );
+            }
+        } finally {
+            this.release();
+        }
+    }
+
+    @Override
+    public void marshal(final Object obj, final ContentHandler handler)
+        throws JAXBException {
+        try {
+            this.marshaller().marshal(obj, handler);
+        } finally {
+            this.release();
+        }
+    }
+
+    @Override
+    public void marshal(final Object obj, final Node node)
+        throws JAXBException {
+        try {
+            this.marshaller().marshal(obj, node);
+        } finally {
+            this.release();
+        }
+    }
+
+    @Override
+    public void marshal(final Object obj, final XMLStreamWriter writer)
+        throws JAXBException {
+        try {
+            this.marshaller().marshal(obj, writer);
+        } finally {
+            this.release();
+        }
+    }
+
+    @Override
+    public void marshal(final Object obj, final XMLEventWriter writer)
+        throws JAXBException {
+        try {
+            this.marshaller().marshal(obj, writer);
+        } finally {
+            this.release();
+        }
+    }
+
+    @Override
+    public Node getNode(final Object obj) throws JAXBException {
+        return this.marshaller().getNode(obj);
+    }
+
+    @Override
+    public void setProperty(final String name, final Object value)
+        throws PropertyException {
+        this.dirty = true;
+        this.marshaller().setProperty(name, value);
+    }
+
+    @Override
+    public Object getProperty(final String name) throws PropertyException {
+        return this.marshaller().getProperty(name);
+    }
+
+    @Override
+    public void setEventHandler(final ValidationEventHandler handler)
+        throws JAXBException {
+        this.dirty = true;
+        this.marshaller().setEventHandler(handler);
+    }
+
+    @Override
+    public ValidationEventHandler getEventHandler() throws JAXBException {
+        return this.marshaller().getEventHandler();
+    }
+
+    @Override
+    public void setAdapter(final XmlAdapter adapter) {
+        this.dirty = true;
+        this.marshaller().setAdapter(adapter);
+    }
+
+    @Override
+    public <A extends XmlAdapter> void setAdapter(final Class<A> type,
+        final A adapter) {
+        this.dirty = true;
+        this.marshaller().setAdapter(type, adapter);
+    }
+
+    @Override
+    public <A extends XmlAdapter> A getAdapter(final Class<A> type) {
+        return this.marshaller().getAdapter(type);
+    }
+
+    @Override
+    public void setAttachmentMarshaller(final AttachmentMarshaller amrsh) {
+        this.dirty = true;
+        this.marshaller().setAttachmentMarshaller(amrsh);
+    }
+
+    @Override
+    public AttachmentMarshaller getAttachmentMarshaller() {
+        return this.marshaller().getAttachmentMarshaller();
+    }
+
+    @Override
+    public void setSchema(final Schema schema) {
+        this.dirty = true;
+        this.marshaller().setSchema(schema);
+    }
+
+    @Override
+    public Schema getSchema() {
+        return this.marshaller().getSchema();
+    }
+
+    @Override
+    public void setListener(final Marshaller.Listener listener) {
+        this.dirty = true;
+        this.marshaller().setListener(listener);
+    }
+
+    @Override
+    public Marshaller.Listener getListener() {
+        return this.marshaller().getListener();
+    }
+
+    /**
+     * Get borrowed marshaller, borrowing it if necessary.
+     * @return Marshaller
+     */
+    private Marshaller marshaller() {
+        if (this.origin == null) {
+            this.origin = this.borrow();
+        }
+        return this.origin;
+    }
+
+    /**
+     * Return borrowed marshaller to the pool, if it's not re-configured.
+     */
+    private void release() {
+        if (!this.dirty && this.origin != null) {
+            this.pool.offer(this.origin);
+            this.origin = null;
+        }
+    }
+
+    /**
+     * Take marshaller from the pool or make a new one, and set the header
+     * of this response to it.
+     * @return Marshaller
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private Marshaller borrow() {
+        Marshaller mrsh = this.pool.poll();
+        if (mrsh == null) {
+            try {
+                mrsh = this.factory.call();
+            // @checkstyle IllegalCatch (1 line)
+            } catch (final Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        if (this.header != null) {
+            try {
+                if (!this.header.equals(
+                    mrsh.getProperty(PooledMarshaller.HEADERS)
+                )) {
+                    mrsh.setProperty(PooledMarshaller.HEADERS, this.header);
+                }
+            } catch (final PropertyException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return mrsh;
+    }
+
+}
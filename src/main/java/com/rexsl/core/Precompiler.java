@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.validation.constraints.NotNull;
+import javax.xml.transform.TransformerConfigurationException;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Compiles all stylesheets found in folders of servlet context.
+ *
+ * <p>Folders are scanned recursively with
+ * {@link ServletContext#getResourcePaths(String)} and every {@code .xsl}
+ * file found is compiled into {@link TemplatesCache}, in parallel, on
+ * a fork-join pool. Compiled stylesheets are keyed by their paths
+ * in the context, for example {@code /xsl/front.xsl}.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "cache")
+@EqualsAndHashCode(of = { "context", "cache" })
+final class Precompiler {
+
+    /**
+     * Servlet context.
+     */
+    private final transient ServletContext context;
+
+    /**
+     * Cache to compile into.
+     */
+    private final transient TemplatesCache cache;
+
+    /**
+     * Public ctor.
+     * @param ctx Servlet context
+     * @param tpls Cache of compiled stylesheets
+     */
+    Precompiler(@NotNull final ServletContext ctx,
+        @NotNull final TemplatesCache tpls) {
+        this.context = ctx;
+        this.cache = tpls;
+    }
+
+    /**
+     * Compile all stylesheets in these folders.
+     * @param folders Folders in servlet context, like {@code /xsl/}
+     * @return Paths of stylesheets compiled
+     * @throws ServletException If any of them fails to compile
+     * @checkstyle RedundantThrows (4 lines)
+     */
+    @NotNull
+    public Set<String> compile(@NotNull final String... folders)
+        throws ServletException {
+        final long start = System.currentTimeMillis();
+        final ConcurrentMap<String, Long> times =
+            new ConcurrentHashMap<String, Long>(0);
+        final ConcurrentMap<String, Throwable> errors =
+            new ConcurrentHashMap<String, Throwable>(0);
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            for (final String folder : folders) {
+                if (!folder.trim().isEmpty()) {
+                    pool.invoke(
+                        new Precompiler.Folder(folder.trim(), times, errors)
+                    );
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        for (final Map.Entry<String, Throwable> error : errors.entrySet()) {
+            Logger.error(
+                this, "#compile(): '%s' failed: %[exception]s",
+                error.getKey(), error.getValue()
+            );
+        }
+        if (!errors.isEmpty()) {
+            throw new ServletException(
+                Logger.format(
+                    "%d stylesheet(s) failed to compile: %[list]s",
+                    errors.size(), new TreeSet<String>(errors.keySet())
+                )
+            );
+        }
+        for (final Map.Entry<String, Long> time : times.entrySet()) {
+            Logger.info(
+                this, "#compile(): '%s' compiled in %[ms]s",
+                time.getKey(), time.getValue()
+            );
+        }
+        Logger.info(
+            this, "#compile(%[list]s): %d stylesheet(s) compiled in %[ms]s",
+            folders, times.size(), System.currentTimeMillis() - start
+        );
+        return Collections.unmodifiableSet(
+            new TreeSet<String>(times.keySet())
+        );
+    }
+
+    /**
+     * Task that compiles all stylesheets in a folder.
+     */
+    private final class Folder extends RecursiveAction {
+        /**
+         * Serialization marker.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Path of the folder.
+         */
+        private final transient String path;
+        /**
+         * Compilation times, in milliseconds.
+         */
+        private final transient ConcurrentMap<String, Long> times;
+        /**
+         * Compilation errors.
+         */
+        private final transient ConcurrentMap<String, Throwable> errors;
+        /**
+         * Public ctor.
+         * @param folder Path of the folder
+         * @param tms Where to save compilation times
+         * @param errs Where to save compilation errors
+         */
+        Folder(final String folder, final ConcurrentMap<String, Long> tms,
+            final ConcurrentMap<String, Throwable> errs) {
+            super();
+            this.path = folder;
+            this.times = tms;
+            this.errors = errs;
+        }
+        @Override
+        protected void compute() {
+            // Servlet API 2.5 returns raw Set of resource paths (strings)
+            @SuppressWarnings("unchecked")
+            final Set<String> paths =
+                Precompiler.this.context.getResourcePaths(this.path);
+            if (paths != null) {
+                final Collection<RecursiveAction> tasks =
+                    new ArrayList<RecursiveAction>(paths.size());
+                for (final String child : paths) {
+                    if (child.endsWith("/")) {
+                        tasks.add(
+                            new Precompiler.Folder(
+                                child, this.times, this.errors
+                            )
+                        );
+                    } else if (child.endsWith(".xsl")) {
+                        tasks.add(
+                            new Precompiler.File(
+                                child, this.times, this.errors
+                            )
+                        );
+                    }
+                }
+                RecursiveAction.invokeAll(tasks);
+            }
+        }
+    }
+
+    /**
+     * Task that compiles one stylesheet.
+     */
+    private final class File extends RecursiveAction {
+        /**
+         * Serialization marker.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Path of the stylesheet.
+         */
+        private final transient String path;
+        /**
+         * Compilation times, in milliseconds.
+         */
+        private final transient ConcurrentMap<String, Long> times;
+        /**
+         * Compilation errors.
+         */
+        private final transient ConcurrentMap<String, Throwable> errors;
+        /**
+         * Public ctor.
+         * @param file Path of the stylesheet
+         * @param tms Where to save compilation time
+         * @param errs Where to save compilation error
+         */
+        File(final String file, final ConcurrentMap<String, Long> tms,
+            final ConcurrentMap<String, Throwable> errs) {
+            super();
+            this.path = file;
+            this.times = tms;
+            this.errors = errs;
+        }
+        @Override
+        @SuppressWarnings("PMD.AvoidCatchingGenericException")
+        protected void compute() {
+            final long start = System.currentTimeMillis();
+            try {
+                Precompiler.this.cache.get(this.path);
+                this.times.put(this.path, System.currentTimeMillis() - start);
+            } catch (final TransformerConfigurationException ex) {
+                this.errors.put(this.path, ex);
+            // @checkstyle IllegalCatch (1 line)
+            } catch (final RuntimeException ex) {
+                this.errors.put(this.path, ex);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,288 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.core.HttpHeaders;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.time.DateFormatUtils;
+
+/**
+ * Probe of client-side XSLT 1.0 capability.
+ *
+ * <p>The probe consists of three resources, served directly by
+ * {@link XsltFilter}: an XML document {@code /rexsl-probe.xml}, its
+ * stylesheet {@code /rexsl-probe.xsl}, and a beacon {@code /rexsl-probe}.
+ * Only a browser which transforms the document itself renders the image
+ * which points to the beacon, and the beacon sets a capability cookie.
+ * In order to probe browsers, include the document into the layout
+ * of transformed pages, for example:
+ *
+ * <pre> &lt;iframe src="/rexsl-probe.xml" style="display:none"/></pre>
+ *
+ * <p>The probe stylesheet is XSLT 1.0, so the cookie proves only that
+ * the browser implements XSLT 1.0 (which is all browsers implement),
+ * not that it can run stylesheets using features of XSLT 2.0. Pages
+ * with XSLT 2.0 stylesheets must not rely on it.
+ *
+ * <p>The cookie is an HMAC of {@code User-Agent} header, signed with
+ * a secret key, which must be the same on all nodes. It is valid only
+ * for the agent it was issued to, and can't be forged without the key.
+ * It is {@code HttpOnly}, since scripts don't need it (the header is
+ * made by hand, because Servlet API 2.5 can't set this flag).
+ * A request with a valid cookie is treated as coming from an XSLT capable
+ * browser, no matter what {@link UserAgent} says.
+ *
+ * <p>The class is immutable and thread-safe. The cookie is checked only
+ * when it is present, with a MAC initialized once per thread.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "enabled")
+@EqualsAndHashCode(of = "secret")
+final class Probe {
+
+    /**
+     * Name of the cookie.
+     */
+    public static final String COOKIE = "rexsl-xslt";
+
+    /**
+     * Path of the probe document.
+     */
+    private static final String XML = "/rexsl-probe.xml";
+
+    /**
+     * Path of the probe stylesheet.
+     */
+    private static final String XSL = "/rexsl-probe.xsl";
+
+    /**
+     * Path of the beacon.
+     */
+    private static final String BEACON = "/rexsl-probe";
+
+    /**
+     * HMAC algorithm.
+     */
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * Lifetime of the cookie, in seconds (a year).
+     */
+    private static final int AGE = 31536000;
+
+    /**
+     * Secret key or NULL if probing is disabled.
+     */
+    private final transient SecretKeySpec secret;
+
+    /**
+     * Is it enabled?
+     */
+    private final transient boolean enabled;
+
+    /**
+     * Initialized MACs, one per thread, since they are not thread-safe.
+     */
+    private final transient ThreadLocal<Mac> macs = new ThreadLocal<Mac>() {
+        @Override
+        protected Mac initialValue() {
+            try {
+                final Mac mac = Mac.getInstance(Probe.ALGORITHM);
+                mac.init(Probe.this.secret);
+                return mac;
+            } catch (final GeneralSecurityException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    };
+
+    /**
+     * Public ctor.
+     * @param key Secret key or NULL if probing is disabled
+     */
+    Probe(final String key) {
+        this.enabled = key != null && !key.isEmpty();
+        if (this.enabled) {
+            try {
+                this.secret = new SecretKeySpec(
+                    key.getBytes(CharEncoding.UTF_8), Probe.ALGORITHM
+                );
+            } catch (final IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        } else {
+            this.secret = null;
+        }
+    }
+
+    /**
+     * Is probing enabled?
+     * @return TRUE if it is
+     */
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Has the client proven that it is capable of XSLT?
+     * @param request The request
+     * @return TRUE if it has a valid cookie
+     */
+    public boolean isProven(@NotNull final HttpServletRequest request) {
+        boolean proven = false;
+        final Cookie[] cookies = request.getCookies();
+        if (this.enabled && cookies != null) {
+            for (final Cookie cookie : cookies) {
+                if (Probe.COOKIE.equals(cookie.getName())
+                    && cookie.getValue() != null) {
+                    proven = MessageDigest.isEqual(
+                        this.sign(request).getBytes(),
+                        cookie.getValue().getBytes()
+                    );
+                    break;
+                }
+            }
+        }
+        return proven;
+    }
+
+    /**
+     * Serve the request, if it is for one of the probe resources.
+     * @param request The request
+     * @param response The response
+     * @return TRUE if it was served
+     * @throws IOException If fails
+     */
+    public boolean serve(@NotNull final HttpServletRequest request,
+        @NotNull final HttpServletResponse response) throws IOException {
+        final String path = request.getRequestURI().substring(
+            request.getContextPath().length()
+        );
+        boolean served = this.enabled;
+        if (served && Probe.XML.equals(path)) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            Probe.send(
+                response, "application/xml",
+                Logger.format(
+                    // @checkstyle LineLength (1 line)
+                    "<?xml version='1.0'?><?xml-stylesheet type='text/xsl' href='%s%s'?><probe/>",
+                    request.getContextPath(), Probe.XSL
+                )
+            );
+        } else if (served && Probe.XSL.equals(path)) {
+            Probe.send(
+                response, "text/xsl",
+                Logger.format(
+                    // @checkstyle LineLength (1 line)
+                    "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='1.0'><xsl:template match='/'><html><body><img src='%s%s' alt=''/></body></html></xsl:template></xsl:stylesheet>",
+                    request.getContextPath(), Probe.BEACON
+                )
+            );
+        } else if (served && Probe.BEACON.equals(path)) {
+            response.addHeader(
+                HttpHeaders.SET_COOKIE,
+                String.format(
+                    "%s=%s; Max-Age=%d; Expires=%s; Path=%s/; HttpOnly",
+                    Probe.COOKIE,
+                    this.sign(request),
+                    Probe.AGE,
+                    DateFormatUtils.format(
+                        System.currentTimeMillis()
+                            + TimeUnit.SECONDS.toMillis(Probe.AGE),
+                        "EEE, dd MMM yyyy HH:mm:ss 'GMT'",
+                        TimeZone.getTimeZone("GMT"),
+                        Locale.ENGLISH
+                    ),
+                    request.getContextPath()
+                )
+            );
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+        } else {
+            served = false;
+        }
+        return served;
+    }
+
+    /**
+     * Make a signature of the client.
+     * @param request The request
+     * @return Signature, in hex
+     */
+    private String sign(final HttpServletRequest request) {
+        String agent = request.getHeader(HttpHeaders.USER_AGENT);
+        if (agent == null) {
+            agent = "";
+        }
+        try {
+            return Hex.encodeHexString(
+                this.macs.get().doFinal(agent.getBytes(CharEncoding.UTF_8))
+            );
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Send a resource.
+     * @param response The response
+     * @param type Media type
+     * @param body Body of it
+     * @throws IOException If fails
+     */
+    private static void send(final HttpServletResponse response,
+        final String type, final String body) throws IOException {
+        final byte[] bytes = body.getBytes(CharEncoding.UTF_8);
+        response.setContentType(type);
+        response.setCharacterEncoding(CharEncoding.UTF_8);
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+}
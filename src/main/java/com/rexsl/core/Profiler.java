@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Sampling profiler of XSL templates.
+ *
+ * <p>Only one of every {@code every} transformations is profiled
+ * (see {@link #sample()}), all others run at full speed. Times of profiled
+ * templates are aggregated by their keys (stylesheet, line, name or match
+ * pattern, and mode), both inclusive (the template together with all
+ * templates it applies or calls) and exclusive (the template alone).
+ * Templates are timed by {@link ProfilingTrace}.
+ *
+ * <p>Results are available through JMX, as {@link ProfilerMBean}.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "every", "samples" })
+@EqualsAndHashCode(of = "every")
+final class Profiler implements ProfilerMBean {
+
+    /**
+     * How many templates to report.
+     */
+    private static final int TOP = 20;
+
+    /**
+     * Profile one of every so many transformations (zero disables).
+     */
+    private final transient int every;
+
+    /**
+     * Counter of transformations.
+     */
+    private final transient AtomicLong counter = new AtomicLong();
+
+    /**
+     * Counter of profiled transformations.
+     */
+    private final transient AtomicLong samples = new AtomicLong();
+
+    /**
+     * Statistics of templates, by their keys.
+     */
+    private final transient ConcurrentMap<String, Profiler.Stat> stats =
+        new ConcurrentHashMap<String, Profiler.Stat>(0);
+
+    /**
+     * Public ctor.
+     * @param ratio Profile one of every so many transformations (zero
+     *  means that nothing is profiled)
+     */
+    Profiler(final int ratio) {
+        this.every = ratio;
+    }
+
+    /**
+     * Is profiling enabled?
+     * @return TRUE if some transformations are profiled
+     */
+    public boolean isEnabled() {
+        return this.every > 0;
+    }
+
+    /**
+     * Should this transformation be profiled?
+     * @return TRUE if it should
+     */
+    public boolean sample() {
+        final boolean sample = this.isEnabled()
+            && this.counter.incrementAndGet() % this.every == 0;
+        if (sample) {
+            this.samples.incrementAndGet();
+        }
+        return sample;
+    }
+
+    /**
+     * Record one execution of a template.
+     * @param key Key of the template
+     * @param inclusive Time spent in the template and in its
+     *  children, in nanoseconds (zero for recursive calls, which are
+     *  included into the time of the outermost one)
+     * @param exclusive Time spent in the template alone, in nanoseconds
+     */
+    public void record(@NotNull final String key, final long inclusive,
+        final long exclusive) {
+        Profiler.Stat stat = this.stats.get(key);
+        if (stat == null) {
+            final Profiler.Stat fresh = new Profiler.Stat(key);
+            stat = this.stats.putIfAbsent(key, fresh);
+            if (stat == null) {
+                stat = fresh;
+            }
+        }
+        stat.calls.incrementAndGet();
+        stat.inclusive.addAndGet(inclusive);
+        stat.exclusive.addAndGet(exclusive);
+    }
+
+    /**
+     * Templates with the highest exclusive time.
+     * @param max Maximum number of them to report
+     * @return Templates and their times, the hottest first
+     */
+    @NotNull
+    public List<String> top(final int max) {
+        final List<Profiler.Stat> all =
+            new ArrayList<Profiler.Stat>(this.stats.values());
+        Collections.sort(
+            all,
+            new Comparator<Profiler.Stat>() {
+                @Override
+                public int compare(final Profiler.Stat left,
+                    final Profiler.Stat right) {
+                    return Long.valueOf(right.exclusive.get())
+                        .compareTo(left.exclusive.get());
+                }
+            }
+        );
+        final List<String> top = new ArrayList<String>(max);
+        for (final Profiler.Stat stat
+            : all.subList(0, Math.min(max, all.size()))) {
+            top.add(stat.toString());
+        }
+        return top;
+    }
+
+    @Override
+    public long getSamples() {
+        return this.samples.get();
+    }
+
+    @Override
+    public String[] getHotTemplates() {
+        final List<String> top = this.top(Profiler.TOP);
+        return top.toArray(new String[top.size()]);
+    }
+
+    @Override
+    public void reset() {
+        this.stats.clear();
+        this.samples.set(0L);
+    }
+
+    /**
+     * Statistics of one template.
+     */
+    private static final class Stat {
+        /**
+         * Key of the template.
+         */
+        private final transient String key;
+        /**
+         * Number of executions.
+         */
+        private final transient AtomicLong calls = new AtomicLong();
+        /**
+         * Total inclusive time, in nanoseconds.
+         */
+        private final transient AtomicLong inclusive = new AtomicLong();
+        /**
+         * Total exclusive time, in nanoseconds.
+         */
+        private final transient AtomicLong exclusive = new AtomicLong();
+        /**
+         * Public ctor.
+         * @param name Key of the template
+         */
+        Stat(final String name) {
+            this.key = name;
+        }
+        @Override
+        public String toString() {
+            return Logger.format(
+                "%s: %d call(s), %[nano]s exclusive, %[nano]s inclusive",
+                this.key, this.calls.get(),
+                this.exclusive.get(), this.inclusive.get()
+            );
+        }
+    }
+
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.StandardNames;
+import net.sf.saxon.trace.InstructionInfo;
+import net.sf.saxon.trace.TraceListener;
+
+/**
+ * Saxon trace listener, which times templates for {@link Profiler}.
+ *
+ * <p>A new listener is attached to every profiled transformation, since
+ * it keeps the stack of running templates. Stylesheets must be compiled
+ * with tracing, otherwise Saxon doesn't report anything. Templates are
+ * recorded in the mode of the closest {@code xsl:apply-templates}
+ * around them. Inclusive time of a recursive template is recorded only
+ * by its outermost frame, in order not to count the same time twice.
+ *
+ * <p>The class is not thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "profiler")
+@EqualsAndHashCode(of = "profiler")
+final class ProfilingTrace implements TraceListener {
+
+    /**
+     * Default mode.
+     */
+    private static final String DEFAULT = "#default";
+
+    /**
+     * Profiler to report to.
+     */
+    private final transient Profiler profiler;
+
+    /**
+     * Running templates, the innermost first.
+     */
+    private final transient Deque<ProfilingTrace.Frame> frames =
+        new LinkedList<ProfilingTrace.Frame>();
+
+    /**
+     * Modes of running {@code xsl:apply-templates}, the innermost first.
+     */
+    private final transient Deque<String> modes = new LinkedList<String>();
+
+    /**
+     * Numbers of running frames, per key of template.
+     */
+    private final transient Map<String, Integer> depths =
+        new HashMap<String, Integer>(0);
+
+    /**
+     * Public ctor.
+     * @param prof Profiler to report to
+     */
+    ProfilingTrace(@NotNull final Profiler prof) {
+        this.profiler = prof;
+    }
+
+    @Override
+    public void open() {
+        this.frames.clear();
+        this.modes.clear();
+        this.depths.clear();
+    }
+
+    @Override
+    public void close() {
+        this.frames.clear();
+        this.modes.clear();
+        this.depths.clear();
+    }
+
+    @Override
+    public void enter(final InstructionInfo info, final XPathContext ctx) {
+        final int type = info.getConstructType();
+        if (type == StandardNames.XSL_APPLY_TEMPLATES) {
+            final Object mode = info.getProperty("mode");
+            if (mode == null) {
+                this.modes.push(ProfilingTrace.DEFAULT);
+            } else {
+                this.modes.push(mode.toString());
+            }
+        } else if (type == StandardNames.XSL_TEMPLATE) {
+            final String key = this.key(info);
+            final Integer depth = this.depths.get(key);
+            if (depth == null) {
+                this.depths.put(key, 1);
+            } else {
+                this.depths.put(key, depth + 1);
+            }
+            this.frames.push(new ProfilingTrace.Frame(key));
+        }
+    }
+
+    @Override
+    public void leave(final InstructionInfo info) {
+        final int type = info.getConstructType();
+        if (type == StandardNames.XSL_APPLY_TEMPLATES) {
+            this.modes.poll();
+        } else if (type == StandardNames.XSL_TEMPLATE
+            && !this.frames.isEmpty()) {
+            final ProfilingTrace.Frame frame = this.frames.pop();
+            final long inclusive = System.nanoTime() - frame.start;
+            final ProfilingTrace.Frame parent = this.frames.peek();
+            if (parent != null) {
+                parent.children += inclusive;
+            }
+            final int depth = this.depths.get(frame.key) - 1;
+            final long outer;
+            if (depth == 0) {
+                this.depths.remove(frame.key);
+                outer = inclusive;
+            } else {
+                this.depths.put(frame.key, depth);
+                outer = 0L;
+            }
+            this.profiler.record(
+                frame.key, outer, inclusive - frame.children
+            );
+        }
+    }
+
+    @Override
+    public void startCurrentItem(final Item item) {
+        // nothing to do
+    }
+
+    @Override
+    public void endCurrentItem(final Item item) {
+        // nothing to do
+    }
+
+    /**
+     * Make a key of the template.
+     * @param info The template
+     * @return Key, like {@code /xsl/layout.xsl:12 match=page #default}
+     */
+    private String key(final InstructionInfo info) {
+        final String name;
+        if (info.getObjectName() == null) {
+            name = String.format("match=%s", info.getProperty("match"));
+        } else {
+            name = String.format("name=%s", info.getObjectName());
+        }
+        String mode = this.modes.peek();
+        if (mode == null) {
+            mode = ProfilingTrace.DEFAULT;
+        }
+        return String.format(
+            "%s:%d %s %s",
+            info.getSystemId(), info.getLineNumber(), name, mode
+        );
+    }
+
+    /**
+     * Running template.
+     */
+    private static final class Frame {
+        /**
+         * Key of the template.
+         */
+        private final transient String key;
+        /**
+         * When it started, in nanoseconds.
+         */
+        private final transient long start = System.nanoTime();
+        /**
+         * Time spent in templates it applied or called, in nanoseconds.
+         */
+        private transient long children;
+        /**
+         * Public ctor.
+         * @param name Key of the template
+         */
+        Frame(final String name) {
+            this.key = name;
+        }
+    }
+
+}
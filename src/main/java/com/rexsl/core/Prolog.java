@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.aspects.Tv;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.validation.constraints.NotNull;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.lang3.StringEscapeUtils;
+
+/**
+ * Prolog of an XML document.
+ *
+ * <p>The document is read only until its root element, in order to
+ * find an associated stylesheet, the same way
+ * {@link javax.xml.transform.TransformerFactory#getAssociatedStylesheet(
+ * javax.xml.transform.Source,String,String,String)} does it, but without
+ * parsing of the entire document. The first {@code xml-stylesheet}
+ * processing instruction with XSL type, which is not an alternative one,
+ * is used. The XML declaration is detected at the same time, so that
+ * the decision about transformation can be made without decoding
+ * the document into a string.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ * @see <a href="http://www.w3.org/TR/xml-stylesheet/">Associating Style Sheets with XML documents</a>
+ */
+@ToString
+@EqualsAndHashCode(of = { "version", "href" })
+final class Prolog {
+
+    /**
+     * StAX factory.
+     */
+    private static final XMLInputFactory FACTORY = Prolog.factory();
+
+    /**
+     * Pseudo attribute of a processing instruction.
+     */
+    private static final Pattern ATTR = Pattern.compile(
+        "([\\w\\-]+)\\s*=\\s*(['\"])(.*?)\\2"
+    );
+
+    /**
+     * Name of the processing instruction.
+     */
+    private static final String TARGET = "xml-stylesheet";
+
+    /**
+     * XML version from the declaration or NULL if it is absent.
+     */
+    private final transient String version;
+
+    /**
+     * HREF of the stylesheet found or NULL if it is absent.
+     */
+    private final transient String href;
+
+    /**
+     * Public ctor.
+     * @param stream Stream with XML document
+     */
+    Prolog(@NotNull final InputStream stream) {
+        final String[] found = Prolog.find(stream);
+        this.version = found[0];
+        this.href = found[1];
+    }
+
+    /**
+     * Does the document start with XML declaration?
+     * @return TRUE if it is an XML document with declaration
+     */
+    public boolean isDeclared() {
+        return this.version != null;
+    }
+
+    /**
+     * Is there an associated stylesheet?
+     * @return TRUE if it is found in the prolog
+     */
+    public boolean hasStylesheet() {
+        return this.href != null;
+    }
+
+    /**
+     * HREF of the associated stylesheet.
+     * @return HREF, exactly as it is specified in the document
+     */
+    @NotNull
+    public String stylesheet() {
+        if (this.href == null) {
+            throw new IllegalStateException("no associated stylesheet");
+        }
+        return this.href;
+    }
+
+    /**
+     * Find XML version and HREF of the associated stylesheet in the stream.
+     * @param stream Stream with XML document
+     * @return Version and HREF, both are NULL if not found or if it's
+     *  not an XML document
+     */
+    private static String[] find(final InputStream stream) {
+        String version = null;
+        String found = null;
+        try {
+            final XMLStreamReader reader =
+                Prolog.FACTORY.createXMLStreamReader(stream);
+            try {
+                version = reader.getVersion();
+                while (found == null && reader.hasNext()) {
+                    final int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        break;
+                    }
+                    if (event == XMLStreamConstants.PROCESSING_INSTRUCTION
+                        && Prolog.TARGET.equals(reader.getPITarget())) {
+                        found = Prolog.href(reader.getPIData());
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (final XMLStreamException ex) {
+            version = null;
+            found = null;
+        }
+        return new String[] {version, found};
+    }
+
+    /**
+     * Get HREF from the data of {@code xml-stylesheet} processing
+     * instruction, if it is an XSL stylesheet.
+     * @param data Data of the processing instruction
+     * @return HREF or NULL if it's not an XSL stylesheet
+     */
+    private static String href(final String data) {
+        final Map<String, String> attrs = new HashMap<String, String>(0);
+        if (data != null) {
+            final Matcher matcher = Prolog.ATTR.matcher(data);
+            while (matcher.find()) {
+                attrs.put(
+                    matcher.group(1),
+                    StringEscapeUtils.unescapeXml(matcher.group(Tv.THREE))
+                );
+            }
+        }
+        final String type = attrs.get("type");
+        String found = null;
+        // @checkstyle BooleanExpressionComplexity (4 lines)
+        if (attrs.containsKey("href") && !"yes".equals(attrs.get("alternate"))
+            && (type == null || "text/xsl".equals(type)
+            || "application/xslt+xml".equals(type)
+            || type.endsWith("/xml"))) {
+            found = attrs.get("href");
+        }
+        return found;
+    }
+
+    /**
+     * Make StAX factory.
+     * @return Factory
+     */
+    private static XMLInputFactory factory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(
+            XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE
+        );
+        return factory;
+    }
+
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.validation.constraints.NotNull;
+import javax.xml.transform.Templates;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Bounded cache of transformed pages.
+ *
+ * <p>Transformation results are keyed by a digest of the XML document and
+ * by the compiled stylesheet it was transformed with, and by content coding
+ * (every compressed variant of a page is cached separately). When a stylesheet
+ * is compiled again (for example, because its file was modified), pages
+ * transformed with the old one are never found again and are eventually
+ * evicted. The total size of cached pages is limited, the least recently
+ * used pages are evicted when it is exceeded.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "max", "bytes", "hits", "misses" })
+@EqualsAndHashCode(of = "max")
+final class RenderCache {
+
+    /**
+     * Load factor of the map.
+     */
+    private static final float LOAD = 0.75f;
+
+    /**
+     * Maximum total size of cached pages, in bytes.
+     */
+    private final transient long max;
+
+    /**
+     * Cached pages, in access order.
+     */
+    private final transient Map<RenderCache.Key, byte[]> pages =
+        new LinkedHashMap<RenderCache.Key, byte[]>(0, RenderCache.LOAD, true);
+
+    /**
+     * Total size of cached pages, in bytes (guarded by pages).
+     */
+    private transient long bytes;
+
+    /**
+     * How many times a page was found in cache.
+     */
+    private final transient AtomicLong hits = new AtomicLong();
+
+    /**
+     * How many times a page was not found.
+     */
+    private final transient AtomicLong misses = new AtomicLong();
+
+    /**
+     * Public ctor.
+     * @param size Maximum total size of cached pages, in bytes (zero means
+     *  that nothing is cached)
+     */
+    RenderCache(final long size) {
+        this.max = size;
+    }
+
+    /**
+     * Is caching enabled?
+     * @return TRUE if pages may be cached
+     */
+    public boolean isEnabled() {
+        return this.max > 0;
+    }
+
+    /**
+     * Get transformed page, counting a hit or a miss (it should be
+     * called once per request).
+     * @param tpl Compiled stylesheet
+     * @param digest Digest of XML document
+     * @param coding Content coding of the page
+     * @return Transformed page or NULL if it's not in cache
+     */
+    public byte[] get(@NotNull final Templates tpl,
+        @NotNull final byte[] digest, @NotNull final String coding) {
+        final byte[] page = this.peek(tpl, digest, coding);
+        if (page == null) {
+            this.misses.incrementAndGet();
+        } else {
+            this.hits.incrementAndGet();
+        }
+        return page;
+    }
+
+    /**
+     * Get transformed page, without counting a hit or a miss (for
+     * lookups of other variants of the page, after {@link #get}).
+     * @param tpl Compiled stylesheet
+     * @param digest Digest of XML document
+     * @param coding Content coding of the page
+     * @return Transformed page or NULL if it's not in cache
+     */
+    public byte[] peek(@NotNull final Templates tpl,
+        @NotNull final byte[] digest, @NotNull final String coding) {
+        synchronized (this.pages) {
+            return this.pages.get(new RenderCache.Key(tpl, digest, coding));
+        }
+    }
+
+    /**
+     * Save transformed page, evicting least recently used ones
+     * if necessary. Pages bigger than the cache are not saved.
+     * @param tpl Compiled stylesheet
+     * @param digest Digest of XML document
+     * @param coding Content coding of the page
+     * @param page Transformed page
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    public void put(@NotNull final Templates tpl,
+        @NotNull final byte[] digest, @NotNull final String coding,
+        @NotNull final byte[] page) {
+        if (page.length <= this.max) {
+            synchronized (this.pages) {
+                final byte[] before = this.pages.put(
+                    new RenderCache.Key(tpl, digest, coding), page
+                );
+                if (before != null) {
+                    this.bytes -= before.length;
+                }
+                this.bytes += page.length;
+                final Iterator<byte[]> iterator =
+                    this.pages.values().iterator();
+                while (this.bytes > this.max) {
+                    this.bytes -= iterator.next().length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Total size of cached pages.
+     * @return Bytes
+     */
+    public long bytes() {
+        synchronized (this.pages) {
+            return this.bytes;
+        }
+    }
+
+    /**
+     * How many times a page was found in cache.
+     * @return Total
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * How many times a page was not found in cache.
+     * @return Total
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Key of a page.
+     */
+    private static final class Key {
+        /**
+         * Compiled stylesheet.
+         */
+        private final transient Templates templates;
+        /**
+         * Digest of XML document.
+         */
+        private final transient byte[] digest;
+        /**
+         * Content coding.
+         */
+        private final transient String coding;
+        /**
+         * Public ctor.
+         * @param tpl Compiled stylesheet
+         * @param dgst Digest of XML document
+         * @param cdng Content coding
+         */
+        Key(final Templates tpl, final byte[] dgst, final String cdng) {
+            this.templates = tpl;
+            this.digest = dgst;
+            this.coding = cdng;
+        }
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof RenderCache.Key
+                && RenderCache.Key.class.cast(obj).templates == this.templates
+                && RenderCache.Key.class.cast(obj).coding.equals(this.coding)
+                && Arrays.equals(
+                    RenderCache.Key.class.cast(obj).digest, this.digest
+                );
+        }
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.templates)
+                ^ Arrays.hashCode(this.digest) ^ this.coding.hashCode();
+        }
+    }
+
+}
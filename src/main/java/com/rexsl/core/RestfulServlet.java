@@ -32,6 +32,7 @@ package com.rexsl.core;
 import com.jcabi.aspects.Loggable;
 import com.jcabi.log.Logger;
 import com.jcabi.manifests.Manifests;
+import com.sun.jersey.api.core.ClassNamesResourceConfig;
 import com.sun.jersey.api.core.PackagesResourceConfig;
 import com.sun.jersey.spi.container.servlet.ServletContainer;
 import java.io.IOException;
@@ -79,6 +80,19 @@ import org.apache.commons.lang3.StringUtils;
  * contains incorrect data. We will consider a package is valid if and only if
  * it abides to the Java package naming conventions.
  *
+ * <p>Packages are not scanned for JAX-RS classes if all of them have
+ * {@code jaxrs.index} files, which list resources and providers (see
+ * {@link IndexProcessor}, which generates them at build time), in every
+ * JAR and directory of classpath where they are. Then only the listed
+ * classes are loaded, together with providers of ReXSL. Otherwise, a
+ * warning is logged and all packages are scanned, since classes of a
+ * package without an index would be lost. Sub-packages are not covered by
+ * indexes, they have to be listed in {@code com.rexsl.PACKAGES} too.
+ * Packages with {@code jaxb.index} files are registered in
+ * {@link XslResolver}, which adds their classes to JAXB context on start.
+ * Background threads of {@link XslResolver} are stopped when the servlet
+ * is destroyed.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @version $Id$
  * @see <a href="http://www.rexsl.com">Introduction to ReXSL</a>
@@ -122,6 +136,7 @@ public final class RestfulServlet extends ServletContainer {
         throws ServletException {
         final Collection<String> packages = new HashSet<String>(0);
         packages.add(this.getClass().getPackage().getName());
+        final Collection<String> listed = new HashSet<String>(0);
         final String param = config.getInitParameter(RestfulServlet.PACKAGES);
         if (param == null) {
             throw new ServletException(
@@ -149,6 +164,7 @@ public final class RestfulServlet extends ServletContainer {
                 );
             }
             packages.add(pkg);
+            listed.add(pkg);
             Logger.info(
                 this,
                 "#init(): '%s' package added (%d total)",
@@ -157,10 +173,38 @@ public final class RestfulServlet extends ServletContainer {
             );
         }
         final Properties props = new Properties();
-        props.setProperty(
-            PackagesResourceConfig.PROPERTY_PACKAGES,
-            StringUtils.join(packages, RestfulServlet.COMMA)
-        );
+        final Collection<String> classes = RestfulServlet.indexed(listed);
+        if (classes.isEmpty()) {
+            props.setProperty(
+                PackagesResourceConfig.PROPERTY_PACKAGES,
+                StringUtils.join(packages, RestfulServlet.COMMA)
+            );
+        } else {
+            classes.add(XslResolver.class.getName());
+            classes.add(XslWriter.class.getName());
+            props.setProperty(
+                ClassNamesResourceConfig.PROPERTY_CLASSNAMES,
+                StringUtils.join(classes, RestfulServlet.COMMA)
+            );
+            Logger.info(
+                this,
+                "#init(): %d JAX-RS class(es) found in indexes, no scanning",
+                classes.size()
+            );
+        }
+        final Collection<String> jaxb = new HashSet<String>(0);
+        final ClassIndex index = new ClassIndex(ClassIndex.JAXB);
+        for (final String pkg : packages) {
+            if (index.exists(pkg)) {
+                jaxb.add(pkg);
+            }
+        }
+        if (!jaxb.isEmpty()) {
+            config.getServletContext().setAttribute(
+                XslResolver.JAXB_PACKAGES,
+                StringUtils.join(jaxb, RestfulServlet.COMMA)
+            );
+        }
         this.init(new ServletConfigWrapper(config, props));
     }
 
@@ -195,4 +239,50 @@ public final class RestfulServlet extends ServletContainer {
         );
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        final Object resolver = this.getServletContext().getAttribute(
+            XslResolver.class.getName()
+        );
+        if (resolver instanceof XslResolver) {
+            XslResolver.class.cast(resolver).close();
+            this.getServletContext().removeAttribute(
+                XslResolver.class.getName()
+            );
+        }
+    }
+
+    /**
+     * Find JAX-RS classes in {@code jaxrs.index} files of the packages,
+     * if all of them are covered by such files in all parts of classpath
+     * (providers of ReXSL itself are not included).
+     * @param packages Packages
+     * @return Full names of classes or empty if some package is not
+     *  covered by its index and has to be scanned
+     */
+    private static Collection<String> indexed(
+        final Collection<String> packages) {
+        final ClassIndex index = new ClassIndex(ClassIndex.JAXRS);
+        final Collection<String> classes = new HashSet<String>(0);
+        final Collection<String> uncovered = new HashSet<String>(0);
+        for (final String pkg : packages) {
+            if (index.covers(pkg)) {
+                classes.addAll(index.names(pkg));
+            } else {
+                uncovered.add(pkg);
+            }
+        }
+        if (!classes.isEmpty() && !uncovered.isEmpty()) {
+            Logger.warn(
+                RestfulServlet.class,
+                // @checkstyle LineLength (1 line)
+                "#indexed(): %[list]s not covered by %s in all JARs, all packages will be scanned",
+                uncovered, ClassIndex.JAXRS
+            );
+            classes.clear();
+        }
+        return classes;
+    }
+
 }
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import javax.validation.constraints.NotNull;
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.w3c.dom.ls.LSInput;
+import org.w3c.dom.ls.LSResourceResolver;
+import org.xml.sax.SAXException;
+
+/**
+ * Cache of compiled XSD schemas, per file.
+ *
+ * <p>{@link Schema} is thread-safe and immutable, that's why one instance
+ * is shared by all marshallers validating against the same file. While
+ * a schema is being compiled, all files resolved by the parser (the schema
+ * itself and all its {@code xs:include}, {@code xs:import} and
+ * {@code xs:redefine}) are recorded, together with their modification
+ * times. The schema is compiled again only when any of them changes.
+ * Resources that are not files are not watched.
+ *
+ * <p>A schema is compiled only once, even when many threads need it at
+ * the same time: the first one compiles it, while others wait for the
+ * result (the same way as in {@link TemplatesCache}).
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "schemas")
+@EqualsAndHashCode(of = "schemas")
+final class SchemaCache {
+
+    /**
+     * Compilations of schemas, by files.
+     */
+    private final transient ConcurrentMap<File,
+        FutureTask<SchemaCache.Compiled>> schemas =
+        new ConcurrentHashMap<File, FutureTask<SchemaCache.Compiled>>(0);
+
+    /**
+     * Get compiled schema of the file, compiling it if it's not in cache
+     * or the file (or any file it includes or imports) was modified since.
+     * @param xsd The file with XSD
+     * @return The schema
+     * @throws SAXException If it can't be compiled
+     */
+    public Schema get(@NotNull final File xsd) throws SAXException {
+        Schema schema = null;
+        while (schema == null) {
+            final FutureTask<SchemaCache.Compiled> task = this.task(xsd);
+            final SchemaCache.Compiled compiled = this.result(xsd, task);
+            if (compiled.fresh()) {
+                schema = compiled.schema;
+            } else {
+                this.schemas.remove(xsd, task);
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * Find compilation of the file in cache or start a new one.
+     * @param xsd The file with XSD
+     * @return Compilation task, which is already done or being run
+     *  by another thread
+     */
+    private FutureTask<SchemaCache.Compiled> task(final File xsd) {
+        FutureTask<SchemaCache.Compiled> task = this.schemas.get(xsd);
+        if (task == null) {
+            final FutureTask<SchemaCache.Compiled> fresh =
+                new FutureTask<SchemaCache.Compiled>(
+                    new Callable<SchemaCache.Compiled>() {
+                        @Override
+                        public SchemaCache.Compiled call()
+                            throws SAXException {
+                            return SchemaCache.compile(xsd);
+                        }
+                    }
+                );
+            task = this.schemas.putIfAbsent(xsd, fresh);
+            if (task == null) {
+                task = fresh;
+                fresh.run();
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Wait for the result of compilation.
+     * @param xsd The file with XSD
+     * @param task Compilation task
+     * @return Compiled schema
+     * @throws SAXException If it can't be compiled
+     */
+    private SchemaCache.Compiled result(final File xsd,
+        final FutureTask<SchemaCache.Compiled> task) throws SAXException {
+        try {
+            return task.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (final ExecutionException ex) {
+            this.schemas.remove(xsd, task);
+            if (ex.getCause() instanceof SAXException) {
+                throw SAXException.class.cast(ex.getCause());
+            }
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Compile the schema, recording all files it is made of.
+     * @param xsd The file with XSD
+     * @return Compiled schema
+     * @throws SAXException If it can't be compiled
+     */
+    private static SchemaCache.Compiled compile(final File xsd)
+        throws SAXException {
+        final long start = System.currentTimeMillis();
+        final Map<File, Long> files = new HashMap<File, Long>(0);
+        files.put(xsd, xsd.lastModified());
+        final SchemaFactory factory =
+            SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        factory.setResourceResolver(
+            new LSResourceResolver() {
+                @Override
+                // @checkstyle ParameterNumber (2 lines)
+                public LSInput resolveResource(final String type,
+                    final String namespace, final String pid,
+                    final String sid, final String base) {
+                    final File file = SchemaCache.file(sid, base);
+                    if (file != null) {
+                        files.put(file, file.lastModified());
+                    }
+                    return null;
+                }
+            }
+        );
+        final Schema schema = factory.newSchema(xsd);
+        Logger.debug(
+            SchemaCache.class,
+            "#compile('%s'): compiled from %d file(s) in %[ms]s",
+            xsd,
+            files.size(),
+            System.currentTimeMillis() - start
+        );
+        return new SchemaCache.Compiled(files, schema);
+    }
+
+    /**
+     * Find the file resolved by the parser.
+     * @param sid System ID of the resource, maybe relative or NULL
+     * @param base Base URI or NULL
+     * @return File or NULL if it is not a file
+     */
+    private static File file(final String sid, final String base) {
+        File file = null;
+        if (sid != null) {
+            try {
+                URI uri = new URI(sid);
+                if (base != null) {
+                    uri = new URI(base).resolve(uri);
+                }
+                if ("file".equals(uri.getScheme())) {
+                    file = new File(uri);
+                }
+            } catch (final URISyntaxException ex) {
+                file = null;
+            } catch (final IllegalArgumentException ex) {
+                file = null;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Compiled schema and modification times of its files.
+     */
+    private static final class Compiled {
+        /**
+         * Modification times of files, when the schema was compiled.
+         */
+        private final transient Map<File, Long> files;
+        /**
+         * The schema.
+         */
+        private final transient Schema schema;
+        /**
+         * Public ctor.
+         * @param times Modification times of files
+         * @param compiled The schema
+         */
+        Compiled(final Map<File, Long> times, final Schema compiled) {
+            this.files = Collections.unmodifiableMap(times);
+            this.schema = compiled;
+        }
+        /**
+         * Are all files still the same?
+         * @return TRUE if none of them was modified
+         */
+        public boolean fresh() {
+            boolean fresh = true;
+            for (final Map.Entry<File, Long> entry : this.files.entrySet()) {
+                if (entry.getKey().lastModified() != entry.getValue()) {
+                    fresh = false;
+                    break;
+                }
+            }
+            return fresh;
+        }
+    }
+
+}
@@ -0,0 +1,391 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.ServletContext;
+import javax.validation.constraints.NotNull;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+
+/**
+ * Watcher of stylesheet files, which invalidates compiled stylesheets
+ * when their sources change.
+ *
+ * <p>It is installed as a {@link URIResolver} of the XSLT factory, on top
+ * of {@link ContextResourceResolver}. While a stylesheet is being compiled
+ * (between {@link #begin(MessageDigest)} and {@link #end(String)}) all
+ * resources resolved in the same thread are recorded as its dependencies,
+ * and their system IDs and contents are added to the digest. Thus, the full
+ * graph of {@code xsl:import} and {@code xsl:include} is known for every
+ * compiled stylesheet, and its digest changes when any of them changes.
+ *
+ * <p>Files are found through {@link ServletContext#getRealPath(String)}
+ * and checked by a background thread, once in a while. When a file
+ * is modified, all stylesheets depending on it (and only them) are
+ * removed from {@link TemplatesCache}. Resources that don't exist as
+ * files (for example, when WAR is not exploded) are not watched.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = "files")
+@EqualsAndHashCode(of = { "context", "origin" })
+final class StylesheetWatch implements URIResolver {
+
+    /**
+     * Servlet context.
+     */
+    private final transient ServletContext context;
+
+    /**
+     * Original resolver.
+     */
+    private final transient URIResolver origin;
+
+    /**
+     * System IDs resolved in the current thread, while compiling.
+     */
+    private final transient ThreadLocal<Collection<String>> recording =
+        new ThreadLocal<Collection<String>>();
+
+    /**
+     * Digests of resources resolved in the current thread, while compiling.
+     */
+    private final transient ThreadLocal<MessageDigest> digests =
+        new ThreadLocal<MessageDigest>();
+
+    /**
+     * Last known modification times of watched files.
+     */
+    private final transient ConcurrentMap<File, Long> files =
+        new ConcurrentHashMap<File, Long>(0);
+
+    /**
+     * Stylesheets (their system IDs) depending on each file.
+     */
+    private final transient ConcurrentMap<File, Set<String>> dependents =
+        new ConcurrentHashMap<File, Set<String>>(0);
+
+    /**
+     * Background sweeper, if started.
+     */
+    private transient ScheduledExecutorService sweeper;
+
+    /**
+     * Public ctor.
+     * @param ctx Servlet context
+     * @param rslvr Original resolver
+     */
+    StylesheetWatch(@NotNull final ServletContext ctx,
+        @NotNull final URIResolver rslvr) {
+        this.context = ctx;
+        this.origin = rslvr;
+    }
+
+    @Override
+    public Source resolve(final String href, final String base)
+        throws TransformerException {
+        Source source = this.origin.resolve(href, base);
+        final Collection<String> deps = this.recording.get();
+        if (deps != null && source != null) {
+            source = StylesheetWatch.digest(source, this.digests.get());
+            if (source.getSystemId() != null) {
+                deps.add(source.getSystemId());
+            }
+        }
+        return source;
+    }
+
+    /**
+     * Start recording of dependencies in the current thread.
+     * @param digest Digest to add all resources resolved to
+     */
+    public void begin(@NotNull final MessageDigest digest) {
+        this.recording.set(new LinkedList<String>());
+        this.digests.set(digest);
+    }
+
+    /**
+     * Stop recording and register all resources resolved since
+     * {@link #begin(MessageDigest)} as dependencies of this stylesheet.
+     * @param key System ID of the stylesheet just compiled or NULL if it
+     *  is not cached and doesn't have to be watched
+     */
+    public void end(final String key) {
+        final Collection<String> deps = this.recording.get();
+        this.recording.remove();
+        this.digests.remove();
+        if (key != null) {
+            this.register(key, deps);
+        }
+    }
+
+    /**
+     * Add system ID and content of the source to the digest.
+     *
+     * <p>Content of {@link StreamSource} is read into memory, that's why
+     * a new source with the same system ID is returned, to be used
+     * instead of the original one. Content of other sources, and of stream
+     * sources without a stream, is not digested.
+     *
+     * @param source The source
+     * @param digest The digest
+     * @return Source to use instead of the original one
+     * @throws TransformerException If fails to read it
+     */
+    @NotNull
+    public static Source digest(@NotNull final Source source,
+        @NotNull final MessageDigest digest) throws TransformerException {
+        Source result = source;
+        try {
+            digest.update(
+                String.valueOf(source.getSystemId())
+                    .getBytes(CharEncoding.UTF_8)
+            );
+            if (source instanceof StreamSource) {
+                final StreamSource stream = StreamSource.class.cast(source);
+                if (stream.getReader() != null) {
+                    final String text;
+                    try {
+                        text = IOUtils.toString(stream.getReader());
+                    } finally {
+                        IOUtils.closeQuietly(stream.getReader());
+                    }
+                    digest.update(text.getBytes(CharEncoding.UTF_8));
+                    result = new StreamSource(
+                        new StringReader(text), source.getSystemId()
+                    );
+                } else if (stream.getInputStream() != null) {
+                    final byte[] bytes;
+                    try {
+                        bytes = IOUtils.toByteArray(stream.getInputStream());
+                    } finally {
+                        IOUtils.closeQuietly(stream.getInputStream());
+                    }
+                    digest.update(bytes);
+                    result = new StreamSource(
+                        new ByteArrayInputStream(bytes), source.getSystemId()
+                    );
+                }
+            }
+        } catch (final IOException ex) {
+            throw new TransformerException(ex);
+        }
+        return result;
+    }
+
+    /**
+     * Register resources as dependencies of this stylesheet.
+     * @param key System ID of the stylesheet
+     * @param deps System IDs of resources resolved or NULL
+     */
+    private void register(final String key, final Collection<String> deps) {
+        final Collection<String> all = new LinkedList<String>();
+        all.add(key);
+        if (deps != null) {
+            all.addAll(deps);
+        }
+        for (final String dep : all) {
+            final File file = this.file(dep);
+            if (file == null) {
+                continue;
+            }
+            this.files.putIfAbsent(file, file.lastModified());
+            Set<String> keys = this.dependents.get(file);
+            if (keys == null) {
+                this.dependents.putIfAbsent(
+                    file,
+                    Collections.newSetFromMap(
+                        new ConcurrentHashMap<String, Boolean>(0)
+                    )
+                );
+                keys = this.dependents.get(file);
+            }
+            keys.add(key);
+        }
+        Logger.debug(
+            this,
+            "#end('%s'): %d dependencies recorded: %[list]s",
+            key, all.size(), all
+        );
+    }
+
+    /**
+     * Forget about this stylesheet, it is not cached any more.
+     * @param key System ID of the stylesheet
+     */
+    public void forget(@NotNull final String key) {
+        for (final Set<String> keys : this.dependents.values()) {
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * Check all watched files and find stylesheets that have to be
+     * recompiled, because some of their files were modified.
+     * @return System IDs of stylesheets to invalidate
+     */
+    public Collection<String> sweep() {
+        final Set<String> stale = new HashSet<String>(0);
+        for (final Map.Entry<File, Long> entry : this.files.entrySet()) {
+            final File file = entry.getKey();
+            final long modified = file.lastModified();
+            if (modified == entry.getValue()
+                || !this.files.replace(file, entry.getValue(), modified)) {
+                continue;
+            }
+            final Set<String> keys = this.dependents.get(file);
+            if (keys != null) {
+                stale.addAll(keys);
+                Logger.info(
+                    this,
+                    "#sweep(): '%s' modified, stylesheets to reload: %[list]s",
+                    file, keys
+                );
+            }
+        }
+        for (final String key : stale) {
+            this.forget(key);
+        }
+        return stale;
+    }
+
+    /**
+     * Start checking files in background and invalidating stylesheets
+     * in the cache.
+     * @param cache Cache of compiled stylesheets
+     * @param period Delay between checks, in seconds
+     */
+    public void start(@NotNull final TemplatesCache cache, final int period) {
+        synchronized (this.files) {
+            if (this.sweeper != null) {
+                throw new IllegalStateException("already started");
+            }
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread =
+                            new Thread(runnable, "rexsl-xsl-watch");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                }
+            );
+            this.sweeper.scheduleWithFixedDelay(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        for (final String key : StylesheetWatch.this.sweep()) {
+                            cache.invalidate(key);
+                        }
+                    }
+                },
+                period, period, TimeUnit.SECONDS
+            );
+        }
+    }
+
+    /**
+     * Stop checking files.
+     */
+    public void close() {
+        synchronized (this.files) {
+            if (this.sweeper != null) {
+                this.sweeper.shutdownNow();
+                this.sweeper = null;
+            }
+        }
+    }
+
+    /**
+     * Find a file for the given system ID.
+     * @param sid System ID
+     * @return File or NULL if it is not a file
+     */
+    private File file(final String sid) {
+        String path;
+        try {
+            final URI uri = URI.create(sid);
+            if ("file".equals(uri.getScheme())) {
+                path = new File(uri).getPath();
+            } else {
+                path = uri.getPath();
+                final String prefix = this.context.getContextPath();
+                if (uri.isAbsolute() && prefix != null
+                    && path != null && path.startsWith(prefix)) {
+                    path = path.substring(prefix.length());
+                }
+                if (path != null && !path.isEmpty()) {
+                    path = this.context.getRealPath(path);
+                }
+            }
+        } catch (final IllegalArgumentException ex) {
+            path = null;
+        }
+        File file = null;
+        if (path != null) {
+            file = new File(path);
+            if (!file.isFile()) {
+                file = null;
+            }
+        }
+        return file;
+    }
+
+}
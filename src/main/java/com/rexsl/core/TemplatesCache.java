@@ -0,0 +1,565 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.validation.constraints.NotNull;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * Bounded cache of compiled XSL stylesheets.
+ *
+ * <p>Stylesheets are compiled into {@link Templates} only once and are
+ * kept in memory, keyed by their system IDs (or by HREFs, if they are
+ * requested by HREF and resolved only when not found in cache).
+ * {@link Templates} are thread-safe, that's why a new
+ * {@link javax.xml.transform.Transformer} can be created from them
+ * for every request. When the cache is full
+ * the least recently used stylesheet is evicted.
+ *
+ * <p>All resources resolved while a stylesheet is being compiled are
+ * registered in {@link StylesheetWatch} as its dependencies, in order
+ * to {@link #invalidate(String)} it when any of them is modified.
+ *
+ * <p>Every compiled stylesheet gets a {@link Compiled#tag()}, which is
+ * a digest of system IDs and contents of the stylesheet and all resources
+ * resolved while compiling it (through {@link StylesheetWatch}). It is the
+ * same on all nodes and after restart, and changes only when any of them
+ * changes. It is used in entity tags of transformed pages.
+ *
+ * <p>For profiling, a stylesheet may also be compiled with tracing, by
+ * another factory, when {@link #traced(Compiled)} is called for it first
+ * time. The traced copy is kept together with the original one, and
+ * is dropped together with it. Stylesheets used by requests which are
+ * not profiled are never compiled with tracing, since it makes
+ * them slower.
+ *
+ * <p>The class is thread-safe. A stylesheet is never compiled twice
+ * in parallel, concurrent requests for the same stylesheet wait for
+ * the first compilation to finish.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "max", "hits", "misses" })
+@EqualsAndHashCode(of = { "factory", "max" })
+final class TemplatesCache {
+
+    /**
+     * XSLT factory.
+     */
+    private final transient TransformerFactory factory;
+
+    /**
+     * XSLT factory, which compiles stylesheets with tracing, or NULL.
+     */
+    private final transient TransformerFactory tracer;
+
+    /**
+     * Watcher of stylesheet dependencies.
+     */
+    private final transient StylesheetWatch watch;
+
+    /**
+     * Maximum number of stylesheets to keep.
+     */
+    private final transient int max;
+
+    /**
+     * Compiled stylesheets, by system IDs.
+     */
+    private final transient ConcurrentMap<String, TemplatesCache.Entry>
+        entries = new ConcurrentHashMap<String, TemplatesCache.Entry>(0);
+
+    /**
+     * Logical clock, for LRU eviction.
+     */
+    private final transient AtomicLong clock = new AtomicLong();
+
+    /**
+     * How many times a compiled stylesheet was found in cache.
+     */
+    private final transient AtomicLong hits = new AtomicLong();
+
+    /**
+     * How many times a stylesheet had to be compiled.
+     */
+    private final transient AtomicLong misses = new AtomicLong();
+
+    /**
+     * Public ctor.
+     * @param fct Factory to compile stylesheets with
+     * @param size Maximum number of stylesheets to keep (zero means
+     *  that nothing is cached)
+     */
+    TemplatesCache(@NotNull final TransformerFactory fct, final int size) {
+        this(fct, size, null);
+    }
+
+    /**
+     * Public ctor.
+     * @param fct Factory to compile stylesheets with
+     * @param size Maximum number of stylesheets to keep (zero means
+     *  that nothing is cached)
+     * @param wtch Watcher of dependencies or NULL if not required
+     */
+    TemplatesCache(@NotNull final TransformerFactory fct, final int size,
+        final StylesheetWatch wtch) {
+        this(fct, size, wtch, null);
+    }
+
+    /**
+     * Public ctor.
+     * @param fct Factory to compile stylesheets with
+     * @param size Maximum number of stylesheets to keep (zero means
+     *  that nothing is cached)
+     * @param wtch Watcher of dependencies or NULL if not required
+     * @param trc Factory to compile stylesheets with tracing or NULL
+     *  if they are not profiled
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    TemplatesCache(@NotNull final TransformerFactory fct, final int size,
+        final StylesheetWatch wtch, final TransformerFactory trc) {
+        this.factory = fct;
+        this.max = size;
+        this.watch = wtch;
+        this.tracer = trc;
+    }
+
+    /**
+     * Get compiled stylesheet, compiling it if necessary.
+     * @param stylesheet The stylesheet
+     * @return Compiled stylesheet
+     * @throws TransformerConfigurationException If fails to compile
+     */
+    @NotNull
+    public TemplatesCache.Compiled get(@NotNull final Source stylesheet)
+        throws TransformerConfigurationException {
+        final String key = stylesheet.getSystemId();
+        final Callable<Source> source = new Callable<Source>() {
+            @Override
+            public Source call() {
+                return stylesheet;
+            }
+        };
+        final TemplatesCache.Compiled templates;
+        if (key == null || this.max == 0) {
+            this.misses.incrementAndGet();
+            templates = this.watched(null, source);
+        } else {
+            templates = this.cached(key, source);
+        }
+        return templates;
+    }
+
+    /**
+     * Get compiled stylesheet by its HREF, resolving and compiling it
+     * only if it is not in cache yet.
+     * @param href HREF of the stylesheet, as found in XML document
+     * @return Compiled stylesheet
+     * @throws TransformerConfigurationException If fails to resolve
+     *  or to compile
+     */
+    @NotNull
+    public TemplatesCache.Compiled get(@NotNull final String href)
+        throws TransformerConfigurationException {
+        final Callable<Source> source = new Callable<Source>() {
+            @Override
+            public Source call() throws TransformerConfigurationException {
+                return TemplatesCache.this.resolve(href);
+            }
+        };
+        final TemplatesCache.Compiled templates;
+        if (this.max == 0) {
+            this.misses.incrementAndGet();
+            templates = this.watched(null, source);
+        } else {
+            templates = this.cached(href, source);
+        }
+        return templates;
+    }
+
+    /**
+     * Get the same stylesheet compiled with tracing, compiling it from
+     * its system ID (or HREF), if it is requested first time.
+     * @param compiled Stylesheet compiled by this cache
+     * @return Stylesheet compiled with tracing, or the original one if its
+     *  system ID is unknown
+     * @throws TransformerConfigurationException If fails to compile
+     */
+    @NotNull
+    public Templates traced(@NotNull final TemplatesCache.Compiled compiled)
+        throws TransformerConfigurationException {
+        if (this.tracer == null) {
+            throw new IllegalStateException("tracing is not enabled");
+        }
+        Templates traced;
+        synchronized (compiled) {
+            traced = compiled.traced;
+            if (traced == null) {
+                if (compiled.href == null) {
+                    traced = compiled.origin;
+                } else {
+                    traced = this.tracer.newTemplates(
+                        this.resolve(compiled.href)
+                    );
+                }
+                compiled.traced = traced;
+            }
+        }
+        return traced;
+    }
+
+    /**
+     * Remove compiled stylesheet from cache, it will be compiled again
+     * on next request.
+     * @param key System ID of the stylesheet
+     */
+    public void invalidate(@NotNull final String key) {
+        if (this.entries.remove(key) != null) {
+            Logger.info(this, "#invalidate('%s'): removed from cache", key);
+        }
+    }
+
+    /**
+     * Total number of hits.
+     * @return Hits
+     */
+    public long hits() {
+        return this.hits.get();
+    }
+
+    /**
+     * Total number of misses.
+     * @return Misses
+     */
+    public long misses() {
+        return this.misses.get();
+    }
+
+    /**
+     * Number of stylesheets currently in cache.
+     * @return Total
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Find it in cache or compile and cache.
+     * @param key System ID or HREF of the stylesheet
+     * @param stylesheet The stylesheet, to be fetched when necessary
+     * @return Compiled stylesheet
+     * @throws TransformerConfigurationException If fails to compile
+     */
+    private TemplatesCache.Compiled cached(final String key,
+        final Callable<Source> stylesheet)
+        throws TransformerConfigurationException {
+        TemplatesCache.Entry entry = this.entries.get(key);
+        if (entry == null) {
+            final TemplatesCache.Entry fresh = new TemplatesCache.Entry(
+                new FutureTask<TemplatesCache.Compiled>(
+                    new Callable<TemplatesCache.Compiled>() {
+                        @Override
+                        public TemplatesCache.Compiled call()
+                            throws TransformerConfigurationException {
+                            return TemplatesCache.this.watched(
+                                key, stylesheet
+                            );
+                        }
+                    }
+                )
+            );
+            entry = this.entries.putIfAbsent(key, fresh);
+            if (entry == null) {
+                entry = fresh;
+                this.misses.incrementAndGet();
+                fresh.touch(this.clock.incrementAndGet());
+                fresh.task.run();
+                this.evict(key);
+            } else {
+                this.hits.incrementAndGet();
+            }
+        } else {
+            this.hits.incrementAndGet();
+        }
+        entry.touch(this.clock.incrementAndGet());
+        try {
+            return entry.task.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (final ExecutionException ex) {
+            this.entries.remove(key, entry);
+            if (ex.getCause() instanceof TransformerConfigurationException) {
+                throw TransformerConfigurationException.class.cast(
+                    ex.getCause()
+                );
+            }
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Fetch and compile the stylesheet, recording its dependencies
+     * and tagging it with their digest.
+     * @param key System ID or HREF of the stylesheet or NULL if it is
+     *  not cached
+     * @param stylesheet The stylesheet, to be fetched
+     * @return Compiled stylesheet
+     * @throws TransformerConfigurationException If fails to compile
+     */
+    @SuppressWarnings("PMD.AvoidCatchingGenericException")
+    private TemplatesCache.Compiled watched(final String key,
+        final Callable<Source> stylesheet)
+        throws TransformerConfigurationException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        if (this.watch != null) {
+            this.watch.begin(digest);
+        }
+        try {
+            final Source source = stylesheet.call();
+            String href = key;
+            if (href == null) {
+                href = source.getSystemId();
+            }
+            final Templates templates = this.compile(
+                StylesheetWatch.digest(source, digest)
+            );
+            return new TemplatesCache.Compiled(
+                templates, Hex.encodeHexString(digest.digest()), href
+            );
+        } catch (final TransformerConfigurationException ex) {
+            throw ex;
+        // @checkstyle IllegalCatch (1 line)
+        } catch (final Exception ex) {
+            throw new TransformerConfigurationException(ex);
+        } finally {
+            if (this.watch != null) {
+                this.watch.end(key);
+            }
+        }
+    }
+
+    /**
+     * Resolve HREF of a stylesheet with the URI resolver of the factory.
+     * @param href HREF of the stylesheet
+     * @return Source found
+     * @throws TransformerConfigurationException If fails to resolve
+     */
+    private Source resolve(final String href)
+        throws TransformerConfigurationException {
+        Source source = null;
+        if (this.factory.getURIResolver() != null) {
+            try {
+                source = this.factory.getURIResolver().resolve(href, null);
+            } catch (final TransformerException ex) {
+                throw new TransformerConfigurationException(
+                    Logger.format("Failed to resolve '%s'", href),
+                    ex
+                );
+            }
+        }
+        if (source == null) {
+            source = new StreamSource(href);
+        }
+        return source;
+    }
+
+    /**
+     * Compile the stylesheet.
+     * @param stylesheet The stylesheet
+     * @return Compiled stylesheet
+     * @throws TransformerConfigurationException If fails to compile
+     */
+    private Templates compile(final Source stylesheet)
+        throws TransformerConfigurationException {
+        final long start = System.currentTimeMillis();
+        final Templates templates = this.factory.newTemplates(stylesheet);
+        if (templates == null) {
+            throw new TransformerConfigurationException(
+                Logger.format(
+                    "%[type]s failed to compile '%s'",
+                    this.factory,
+                    stylesheet.getSystemId()
+                )
+            );
+        }
+        Logger.debug(
+            this,
+            "#compile('%s'): compiled in %[ms]s",
+            stylesheet.getSystemId(),
+            System.currentTimeMillis() - start
+        );
+        return templates;
+    }
+
+    /**
+     * Remove least recently used stylesheets, if there are too many.
+     * @param added System ID or HREF of the stylesheet just added, which
+     *  is never evicted
+     */
+    private void evict(final String added) {
+        while (this.entries.size() > this.max) {
+            Map.Entry<String, TemplatesCache.Entry> oldest = null;
+            for (final Map.Entry<String, TemplatesCache.Entry> entry
+                : this.entries.entrySet()) {
+                if (entry.getKey().equals(added)) {
+                    continue;
+                }
+                if (oldest == null
+                    || entry.getValue().stamp() < oldest.getValue().stamp()) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                break;
+            }
+            if (this.entries.remove(oldest.getKey(), oldest.getValue())
+                && this.watch != null) {
+                this.watch.forget(oldest.getKey());
+            }
+            Logger.debug(
+                this,
+                "#evict(): '%s' evicted, %d stylesheet(s) left",
+                oldest.getKey(),
+                this.entries.size()
+            );
+        }
+    }
+
+    /**
+     * Compiled stylesheet, with its tag.
+     */
+    static final class Compiled {
+        /**
+         * Compiled stylesheet.
+         */
+        private final transient Templates origin;
+        /**
+         * Its tag.
+         */
+        private final transient String label;
+        /**
+         * System ID or HREF it was compiled from or NULL if unknown.
+         */
+        private final transient String href;
+        /**
+         * The same stylesheet compiled with tracing or NULL if it
+         * is not compiled yet (guarded by this).
+         */
+        private transient Templates traced;
+        /**
+         * Public ctor.
+         * @param tpl Compiled stylesheet
+         * @param tag Its tag
+         * @param src System ID or HREF it was compiled from or NULL
+         */
+        Compiled(final Templates tpl, final String tag, final String src) {
+            this.origin = tpl;
+            this.label = tag;
+            this.href = src;
+        }
+        /**
+         * Compiled stylesheet.
+         * @return Templates
+         */
+        public Templates templates() {
+            return this.origin;
+        }
+        /**
+         * Tag of the stylesheet, which is the same for the same sources,
+         * on all nodes and after restart.
+         * @return Tag
+         */
+        public String tag() {
+            return this.label;
+        }
+    }
+
+    /**
+     * Cache entry.
+     */
+    private static final class Entry {
+        /**
+         * Compilation task.
+         */
+        private final transient FutureTask<TemplatesCache.Compiled> task;
+        /**
+         * When it was used last time, according to the logical clock.
+         */
+        private transient volatile long used;
+        /**
+         * Public ctor.
+         * @param tsk Compilation task
+         */
+        Entry(final FutureTask<TemplatesCache.Compiled> tsk) {
+            this.task = tsk;
+        }
+        /**
+         * Mark it as used.
+         * @param time Logical time
+         */
+        public void touch(final long time) {
+            this.used = time;
+        }
+        /**
+         * When it was used last time.
+         * @return Logical time
+         */
+        public long stamp() {
+            return this.used;
+        }
+    }
+
+}
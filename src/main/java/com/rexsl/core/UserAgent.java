@@ -40,8 +40,8 @@ import lombok.EqualsAndHashCode;
 /**
  * User-agent HTTP header wrapper.
  *
- * <p>This class is instantiated in {@link PageAnalyzer#needsTransformation()}
- * method, using the value of {@code User-Agent} HTTP header. If such a header
+ * <p>This class is instantiated by {@link Client}, using the value
+ * of {@code User-Agent} HTTP header. If such a header
  * doesn't exist in the request - {@code NULL} value will be used instead.
  *
  * @author Yegor Bugayenko (yegor@tpc2.com)
@@ -64,6 +64,11 @@ final class UserAgent {
     private final transient ConcurrentMap<String, ProductVersion> tokens =
         new ConcurrentHashMap<String, ProductVersion>(0);
 
+    /**
+     * Table of capable agents.
+     */
+    private final transient XsltCapabilities table;
+
     /**
      * Public ctor.
      *
@@ -71,15 +76,27 @@ final class UserAgent {
      * HTTP header or {@code NULL}. If {@code NULL} is provided we just ignore
      * it and assume that the header is empty (user agent is not specified).
      * Such a mechanism is required for a unification of user agent
-     * manipulations in {@link PageAnalyzer}. That class should have an instance
+     * manipulations in {@link Client}. That class should have an instance
      * of {@code UserAgent} no matter what. That's why we accept
      * {@code NULL} here.
      *
      * @param text The text of HTTP header or {@code NULL} if such
      *  a header is absent in the HTTP request
      */
-    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
     UserAgent(final String text) {
+        this(text, XsltCapabilities.DEFAULT);
+    }
+
+    /**
+     * Public ctor.
+     * @param text The text of HTTP header or {@code NULL} if such
+     *  a header is absent in the HTTP request
+     * @param caps Table of agents capable of XSLT
+     * @since 2.0
+     */
+    @SuppressWarnings("PMD.AvoidInstantiatingObjectsInLoops")
+    UserAgent(final String text, final XsltCapabilities caps) {
+        this.table = caps;
         if (text != null) {
             final Matcher matcher = UserAgent.TOKEN.matcher(text);
             while (matcher.find()) {
@@ -106,47 +123,12 @@ final class UserAgent {
     }
 
     /**
-     * Check if this agent supports XSLT.
-     * @return Does it support XSLT 2.0?
+     * Check if this agent supports XSLT, according to
+     * {@link XsltCapabilities}.
+     * @return Can it transform XML itself?
      */
     public boolean isXsltCapable() {
-        return this.isSafari() || this.isChrome();
-    }
-
-    /**
-     * Check if this is Safari.
-     * @return Is it?
-     */
-    private boolean isSafari() {
-        return this.tokens.containsKey("Safari")
-            && this.isVersionHigherOrEqual("Version", "5");
-    }
-
-    /**
-     * Check if this is Google Chrome.
-     * @return Is it?
-     */
-    private boolean isChrome() {
-        final String token = "Chrome";
-        return this.tokens.containsKey(token)
-            && this.isVersionHigherOrEqual(token, "10");
-    }
-
-    /**
-     * Check if the version is higher or equal than this one.
-     * @param token Token, which version we're comparing
-     * @param target Target version to compare with
-     * @return Returns true if token's version is higher
-     *  or equal than the target version
-     */
-    private boolean isVersionHigherOrEqual(final String token,
-        final String target) {
-        final ProductVersion found = this.tokens.get(token);
-        boolean result = false;
-        if (found != null) {
-            result = found.compareTo(new ProductVersion(target)) >= 0;
-        }
-        return result;
+        return this.table.isCapable(this.tokens);
     }
 
 }
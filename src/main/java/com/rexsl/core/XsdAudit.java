@@ -0,0 +1,273 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.log.Logger;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.validation.constraints.NotNull;
+import javax.xml.transform.Source;
+import javax.xml.validation.Schema;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.xml.sax.SAXException;
+
+/**
+ * Sampled validation of marshalled responses against XSD schemas,
+ * in background.
+ *
+ * <p>Only one of every {@code every} responses is sampled. A copy of its
+ * XML is validated by a single background thread, off the request path,
+ * and failures are only counted, per class, and logged; the response
+ * itself is never affected. When too many samples are waiting for
+ * validation, new ones are dropped.
+ *
+ * <p>The class is thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString(of = { "every", "samples", "failures" })
+@EqualsAndHashCode(of = "every")
+final class XsdAudit implements XsdAuditMBean {
+
+    /**
+     * Maximum number of samples waiting for validation.
+     */
+    private static final int QUEUE = 16;
+
+    /**
+     * Validate one of that many responses.
+     */
+    private final transient int every;
+
+    /**
+     * Number of responses seen.
+     */
+    private final transient AtomicLong responses = new AtomicLong();
+
+    /**
+     * Number of responses validated.
+     */
+    private final transient AtomicLong samples = new AtomicLong();
+
+    /**
+     * Number of samples dropped.
+     */
+    private final transient AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Failures of validation, per class name.
+     */
+    private final transient ConcurrentMap<String, AtomicLong> failures =
+        new ConcurrentHashMap<String, AtomicLong>(0);
+
+    /**
+     * Background validator.
+     */
+    private final transient ThreadPoolExecutor validator;
+
+    /**
+     * Public ctor.
+     * @param rate Validate one of that many responses
+     */
+    XsdAudit(final int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException(
+                Logger.format("sampling rate %d is not positive", rate)
+            );
+        }
+        this.every = rate;
+        this.validator = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(XsdAudit.QUEUE),
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread =
+                        new Thread(runnable, "rexsl-xsd-audit");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            },
+            new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(final Runnable runnable,
+                    final ThreadPoolExecutor exec) {
+                    XsdAudit.this.dropped.incrementAndGet();
+                }
+            }
+        );
+    }
+
+    /**
+     * Decide whether to validate the next response of this type.
+     * @param schema Schema to validate against
+     * @param type Type to be marshalled
+     * @return Sample to validate or NULL if this response is not sampled
+     */
+    public XsdAudit.Sample sample(@NotNull final Schema schema,
+        @NotNull final Class<?> type) {
+        XsdAudit.Sample sample = null;
+        if (this.responses.incrementAndGet() % this.every == 0) {
+            sample = new XsdAudit.Sample(schema, type);
+        }
+        return sample;
+    }
+
+    /**
+     * Stop validating and wait for samples already submitted.
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        this.validator.shutdown();
+        this.validator.awaitTermination(1L, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public long getSamples() {
+        return this.samples.get();
+    }
+
+    @Override
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    @Override
+    public String[] getFailures() {
+        final List<String> lines = new ArrayList<String>(0);
+        for (final Map.Entry<String, AtomicLong> entry
+            : this.failures.entrySet()) {
+            lines.add(
+                Logger.format("%s: %d", entry.getKey(), entry.getValue().get())
+            );
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Override
+    public void reset() {
+        this.samples.set(0L);
+        this.dropped.set(0L);
+        this.failures.clear();
+    }
+
+    /**
+     * Validate XML of a response.
+     * @param schema Schema to validate against
+     * @param type Type marshalled
+     * @param xml Copy of marshalled XML
+     */
+    private void validate(final Schema schema, final Class<?> type,
+        final Source xml) {
+        this.samples.incrementAndGet();
+        try {
+            schema.newValidator().validate(xml);
+        } catch (final SAXException ex) {
+            this.fail(type, ex);
+        } catch (final IOException ex) {
+            this.fail(type, ex);
+        }
+    }
+
+    /**
+     * Count a failure of validation.
+     * @param type Type marshalled
+     * @param cause Cause of failure
+     */
+    private void fail(final Class<?> type, final Exception cause) {
+        AtomicLong count = this.failures.get(type.getName());
+        if (count == null) {
+            this.failures.putIfAbsent(type.getName(), new AtomicLong());
+            count = this.failures.get(type.getName());
+        }
+        Logger.warn(
+            this,
+            "#validate(): '%s' doesn't match its XSD (%d times so far): %s",
+            type.getName(),
+            count.incrementAndGet(),
+            cause.getMessage()
+        );
+    }
+
+    /**
+     * Response to validate.
+     */
+    public final class Sample {
+        /**
+         * Schema to validate against.
+         */
+        private final transient Schema schema;
+        /**
+         * Type marshalled.
+         */
+        private final transient Class<?> type;
+        /**
+         * Public ctor.
+         * @param xsd Schema to validate against
+         * @param cls Type marshalled
+         */
+        Sample(final Schema xsd, final Class<?> cls) {
+            this.schema = xsd;
+            this.type = cls;
+        }
+        /**
+         * Validate this XML in background.
+         * @param xml Copy of marshalled XML, not used by anyone else
+         */
+        public void check(@NotNull final Source xml) {
+            XsdAudit.this.validator.execute(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        XsdAudit.this.validate(
+                            XsdAudit.Sample.this.schema,
+                            XsdAudit.Sample.this.type,
+                            xml
+                        );
+                    }
+                }
+            );
+        }
+    }
+
+}
@@ -36,10 +36,28 @@ import com.rexsl.core.annotations.Schema;
 import com.rexsl.core.annotations.Stylesheet;
 import java.io.File;
 import java.lang.annotation.Annotation;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.constraints.NotNull;
@@ -48,11 +66,9 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.ext.ContextResolver;
 import javax.ws.rs.ext.Provider;
-import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
-import javax.xml.validation.SchemaFactory;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 import org.apache.commons.lang3.StringEscapeUtils;
@@ -64,13 +80,36 @@ import org.xml.sax.SAXException;
  * <p>You don't need to use this class directly. It is made public only becuase
  * JAX-RS implementation should be able to discover it in classpath.
  *
+ * <p>Marshallers are configured only once, for every type, and are reused
+ * through {@link PooledMarshaller}, which sets {@code xml-stylesheet}
+ * header of the request (with its base URL) to them. Every response gets
+ * its own instance of {@link Marshaller}, though. XSD schemas (when
+ * {@link #XSD_FOLDER} is set) are compiled once per file, by
+ * {@link SchemaCache}, and compiled again only when the file (or any file
+ * it includes or imports) is modified.
+ * With {@link #XSD_SAMPLING} responses are not validated while being
+ * marshalled; only some of them are validated later, by {@link XsdAudit},
+ * which is available through JMX as {@code com.rexsl.core:type=XsdAudit}
+ * until {@link #close()}.
+ *
+ * <p>Classes are added to {@link JAXBContext} in batches, which are built
+ * in background, one after another. While a new context is being built
+ * requests for known classes keep using the old one, and only requests
+ * for new classes wait for it. Known classes are found in an immutable
+ * snapshot of the context, without any locking. Classes may be registered
+ * up front, from {@code jaxb.index} files of packages listed in
+ * {@link #JAXB_PACKAGES} init parameter of servlet context, or with
+ * {@link #add(Collection)}. Packages of {@link RestfulServlet} which
+ * have such files (for example, generated by {@link IndexProcessor})
+ * are registered up front too.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @author Krzysztof Krason (Krzysztof.Krason@gmail.com)
  * @version $Id$
  * @since 0.2
  */
 @ToString
-@EqualsAndHashCode(of = { "folder", "classes", "context" })
+@EqualsAndHashCode(of = { "folder", "classes" })
 @Provider
 @Produces({ MediaType.APPLICATION_XML, MediaType.TEXT_XML })
 @Loggable(Loggable.DEBUG)
@@ -82,11 +121,38 @@ public final class XslResolver implements ContextResolver<Marshaller> {
      */
     public static final String XSD_FOLDER = "com.rexsl.core.XSD_FOLDER";
 
+    /**
+     * Validate only one of that many responses, in background, instead of
+     * validating all of them on the request path, when {@link #XSD_FOLDER}
+     * is set (name of {@link ServletContext} init parameter).
+     * @since 2.0
+     */
+    public static final String XSD_SAMPLING = "com.rexsl.core.XSD_SAMPLING";
+
+    /**
+     * Comma-separated packages with {@code jaxb.index} files, to be added
+     * to JAXB context on start (name of {@link ServletContext} init
+     * parameter, and of its attribute set by {@link RestfulServlet}).
+     * @since 2.0
+     */
+    public static final String JAXB_PACKAGES =
+        "com.rexsl.core.JAXB_PACKAGES";
+
     /**
      * Manifest xsl suffix entry name.
      */
     private static final String XSL_SUFFIX = "ReXSL-Suffix";
 
+    /**
+     * Maximum number of idle marshallers per type.
+     */
+    private static final int POOL = 32;
+
+    /**
+     * Maximum number of cached XML headers.
+     */
+    private static final int MAX_HEADERS = 1024;
+
     /**
      * Folder with XSD files.
      * @see #setServletContext(ServletContext)
@@ -99,9 +165,66 @@ public final class XslResolver implements ContextResolver<Marshaller> {
     private final transient Set<Class<?>> classes = new HashSet<Class<?>>(0);
 
     /**
-     * JAXB context.
+     * Current JAXB context, together with its classes.
+     */
+    private transient volatile XslResolver.Snapshot snapshot =
+        new XslResolver.Snapshot(null, Collections.<Class<?>>emptySet());
+
+    /**
+     * Build of JAXB context, which is not started yet, or NULL
+     * (guarded by classes).
+     */
+    private transient Future<JAXBContext> pending;
+
+    /**
+     * Build of JAXB context, which is running or finished last, or NULL
+     * (guarded by classes).
+     */
+    private transient Future<JAXBContext> running;
+
+    /**
+     * Builder of JAXB contexts.
+     */
+    private final transient ExecutorService builder =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread =
+                        new Thread(runnable, "rexsl-jaxb-context");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }
+        );
+
+    /**
+     * Pools of configured marshallers.
      */
-    private transient JAXBContext context;
+    private final transient ConcurrentMap<XslResolver.Key, XslResolver.Pool>
+        pools = new ConcurrentHashMap<XslResolver.Key, XslResolver.Pool>(0);
+
+    /**
+     * XML headers with stylesheets, by types and base URLs of requests.
+     */
+    private final transient ConcurrentMap<String, String> headers =
+        new ConcurrentHashMap<String, String>(0);
+
+    /**
+     * Compiled XSD schemas.
+     */
+    private final transient SchemaCache schemas = new SchemaCache();
+
+    /**
+     * Sampled validation in background or NULL if all responses
+     * are validated while being marshalled.
+     */
+    private transient XsdAudit audit;
+
+    /**
+     * Name of {@link #audit} in JMX or NULL if it is not registered.
+     */
+    private transient ObjectName mbean;
 
     /**
      * Servlet request.
@@ -124,6 +247,59 @@ public final class XslResolver implements ContextResolver<Marshaller> {
                 ctx.getClass().getName(),
                 this.folder
             );
+            final String rate = ctx.getInitParameter(XslResolver.XSD_SAMPLING);
+            if (rate != null) {
+                this.audit = new XsdAudit(XslResolver.rate(rate));
+                this.mbean = XslResolver.expose(ctx, this.audit);
+            }
+        }
+        final StringBuilder pkgs = new StringBuilder(0);
+        final String param = ctx.getInitParameter(XslResolver.JAXB_PACKAGES);
+        if (param != null) {
+            pkgs.append(param);
+        }
+        final Object indexed = ctx.getAttribute(XslResolver.JAXB_PACKAGES);
+        if (indexed != null) {
+            pkgs.append(',').append(indexed);
+        }
+        final ClassIndex index = new ClassIndex(ClassIndex.JAXB);
+        final Collection<Class<?>> found = new LinkedList<Class<?>>();
+        for (final String pkg : pkgs.toString().split(",")) {
+            if (!pkg.trim().isEmpty()) {
+                found.addAll(index.classes(pkg.trim()));
+            }
+        }
+        this.preload(found);
+        ctx.setAttribute(XslResolver.class.getName(), this);
+    }
+
+    /**
+     * Stop building of JAXB contexts and validation of samples in
+     * background, and remove {@link XsdAudit} from JMX, to be called when
+     * the application is stopped (it is done by
+     * {@link RestfulServlet#destroy()}).
+     * @since 2.0
+     */
+    public void close() {
+        this.builder.shutdownNow();
+        if (this.mbean != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(this.mbean);
+            } catch (final JMException ex) {
+                Logger.warn(
+                    this, "#close(): failed to unregister %s: %s",
+                    this.mbean, ex
+                );
+            }
+            this.mbean = null;
+        }
+        if (this.audit != null) {
+            try {
+                this.audit.close();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -146,28 +322,23 @@ public final class XslResolver implements ContextResolver<Marshaller> {
     @Override
     @NotNull
     public Marshaller getContext(@NotNull final Class<?> type) {
-        Marshaller mrsh;
-        try {
-            mrsh = this.buildContext(type).createMarshaller();
-            mrsh.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            final String header = Logger.format(
-                "\n<?xml-stylesheet type='text/xsl' href='%s'?>",
-                StringEscapeUtils.escapeXml11(this.stylesheet(type))
+        final XslResolver.Key key = new XslResolver.Key(
+            this.buildContext(type), type
+        );
+        XslResolver.Pool pool = this.pools.get(key);
+        if (pool == null) {
+            final XslResolver.Pool fresh = new XslResolver.Pool(
+                key.context, type
             );
-            mrsh.setProperty("com.sun.xml.bind.xmlHeaders", header);
-        } catch (final JAXBException ex) {
-            throw new IllegalStateException(ex);
-        }
-        if (this.folder == null) {
-            Logger.debug(
-                this,
-                "#getContext(%s): marshaller created (no XSD validator)",
-                type.getName()
-            );
-        } else {
-            this.addXsdValidatorToMarshaller(mrsh, type);
+            pool = this.pools.putIfAbsent(key, fresh);
+            if (pool == null) {
+                pool = fresh;
+            }
         }
-        return mrsh;
+        pool.refresh();
+        return new PooledMarshaller(
+            pool.idle, pool, pool.sample(), this.header(type)
+        );
     }
 
     /**
@@ -175,26 +346,169 @@ public final class XslResolver implements ContextResolver<Marshaller> {
      * @param cls The class we should add
      */
     public void add(@NotNull final Class<?> cls) {
+        this.add(Collections.<Class<?>>singleton(cls));
+    }
+
+    /**
+     * Add new classes to context, in one batch, and wait until they are
+     * added.
+     * @param types The classes we should add
+     * @since 2.0
+     */
+    public void add(@NotNull final Collection<Class<?>> types) {
+        final Future<JAXBContext> future = this.register(types);
+        if (future != null) {
+            try {
+                future.get();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            } catch (final ExecutionException ex) {
+                synchronized (this.classes) {
+                    this.classes.removeAll(types);
+                }
+                throw new IllegalStateException(ex.getCause());
+            }
+            for (final Class<?> cls : types) {
+                Logger.info(
+                    this,
+                    "#add(%s): added to JAXBContext, stylesheet: '%s'",
+                    cls.getName(),
+                    this.stylesheet(cls)
+                );
+            }
+        }
+    }
+
+    /**
+     * Register classes found on start, without waiting for them to be
+     * added, and log the failure if they can't be added.
+     *
+     * <p>On failure the classes are forgotten, in order not to break
+     * contexts built later; every one of them will be added again (and
+     * will fail with a clear exception, if it's broken) when it's needed.
+     *
+     * @param types The classes
+     */
+    private void preload(final Collection<Class<?>> types) {
+        final Future<JAXBContext> future = this.register(types);
+        if (future != null) {
+            this.builder.submit(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        XslResolver.this.check(future, types);
+                    }
+                }
+            );
+        }
+    }
+
+    /**
+     * Check that the build of context with classes found on start,
+     * which is finished already, succeeded.
+     * @param future The build
+     * @param types The classes
+     */
+    private void check(final Future<JAXBContext> future,
+        final Collection<Class<?>> types) {
+        try {
+            future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException ex) {
+            synchronized (this.classes) {
+                this.classes.removeAll(types);
+            }
+            Logger.error(
+                this,
+                "#check(): failed to add %d class(es) on start: %[exception]s",
+                types.size(),
+                ex.getCause()
+            );
+        }
+    }
+
+    /**
+     * Register new classes and schedule a build of context, if any of
+     * them is not known yet.
+     *
+     * <p>Classes already in the context are found in its snapshot,
+     * without locking.
+     *
+     * @param types The classes
+     * @return Build of context with them or NULL if all of them are
+     *  already in the context
+     */
+    private Future<JAXBContext> register(final Collection<Class<?>> types) {
+        Future<JAXBContext> future = null;
+        if (!this.snapshot.classes.containsAll(types)) {
+            future = this.schedule(types);
+        }
+        return future;
+    }
+
+    /**
+     * Register new classes and schedule a build of context, if it's not
+     * scheduled yet.
+     * @param types The classes
+     * @return Build of context with them or NULL if all of them are
+     *  already in the context
+     */
+    private Future<JAXBContext> schedule(final Collection<Class<?>> types) {
+        Future<JAXBContext> future = null;
         synchronized (this.classes) {
-            if (!this.classes.contains(cls)) {
-                try {
-                    this.classes.add(cls);
-                    this.context = JAXBContext.newInstance(
-                        this.classes.toArray(new Class<?>[this.classes.size()])
-                    );
-                    Logger.info(
-                        this,
-                        // @checkstyle LineLength (1 line)
-                        "#add(%s): added to JAXBContext (%d total), stylesheet: '%s'",
-                        cls.getName(),
-                        this.classes.size(),
-                        this.stylesheet(cls)
-                    );
-                } catch (final JAXBException ex) {
-                    throw new IllegalStateException(ex);
+            if (!this.snapshot.classes.containsAll(types)) {
+                if (!this.classes.containsAll(types)) {
+                    this.classes.addAll(types);
+                    if (this.pending == null) {
+                        this.pending = this.builder.submit(
+                            new Callable<JAXBContext>() {
+                                @Override
+                                public JAXBContext call()
+                                    throws JAXBException {
+                                    return XslResolver.this.build();
+                                }
+                            }
+                        );
+                    }
+                }
+                if (this.pending == null) {
+                    future = this.running;
+                } else {
+                    future = this.pending;
                 }
             }
         }
+        return future;
+    }
+
+    /**
+     * Build new context with all classes registered so far and use it
+     * from now on.
+     * @return Context
+     * @throws JAXBException If fails
+     */
+    private JAXBContext build() throws JAXBException {
+        final Class<?>[] all;
+        synchronized (this.classes) {
+            all = this.classes.toArray(new Class<?>[this.classes.size()]);
+            this.running = this.pending;
+            this.pending = null;
+        }
+        final long start = System.currentTimeMillis();
+        final JAXBContext ctx = JAXBContext.newInstance(all);
+        this.snapshot = new XslResolver.Snapshot(
+            ctx, new HashSet<Class<?>>(Arrays.asList(all))
+        );
+        this.pools.clear();
+        Logger.info(
+            this,
+            "#build(): JAXBContext with %d class(es) built in %[ms]s",
+            all.length,
+            System.currentTimeMillis() - start
+        );
+        return ctx;
     }
 
     /**
@@ -203,8 +517,47 @@ public final class XslResolver implements ContextResolver<Marshaller> {
      * @return The context
      */
     private JAXBContext buildContext(final Class<?> cls) {
-        this.add(cls);
-        return this.context;
+        if (!this.snapshot.classes.contains(cls)) {
+            this.add(cls);
+        }
+        return this.snapshot.context;
+    }
+
+    /**
+     * XML header with the stylesheet of this type, for the current request.
+     *
+     * <p>Headers are made once per type and base URL of requests
+     * (scheme, host, port and context path), and cached. Since host names
+     * come from clients, the cache is cleared when it gets too big.
+     *
+     * @param type The class
+     * @return The header
+     */
+    private String header(final Class<?> type) {
+        final StringBuilder text = new StringBuilder(type.getName());
+        if (this.request != null
+            && !type.isAnnotationPresent(Stylesheet.class)) {
+            text.append(' ')
+                .append(this.request.getScheme())
+                .append("://")
+                .append(this.request.getServerName())
+                .append(':')
+                .append(this.request.getServerPort())
+                .append(this.request.getContextPath());
+        }
+        final String key = text.toString();
+        String header = this.headers.get(key);
+        if (header == null) {
+            header = Logger.format(
+                "\n<?xml-stylesheet type='text/xsl' href='%s'?>",
+                StringEscapeUtils.escapeXml11(this.stylesheet(type))
+            );
+            if (this.headers.size() >= XslResolver.MAX_HEADERS) {
+                this.headers.clear();
+            }
+            this.headers.put(key, header);
+        }
+        return header;
     }
 
     /**
@@ -262,43 +615,29 @@ public final class XslResolver implements ContextResolver<Marshaller> {
     }
 
     /**
-     * Configure marhaller adding a xsd validator.
-     * @param mrsh The marshaller, already created and ready to marshal
+     * Find XSD file to validate this type against.
      * @param type The class to be marshalled
+     * @return The file or NULL if there is no need to validate
      * @see #getContext(Class)
      */
-    private void addXsdValidatorToMarshaller(final Marshaller mrsh,
-        final Class<?> type) {
+    private File xsd(final Class<?> type) {
+        File xsd = null;
         final String name = XslResolver.schema(type);
-        if (name.isEmpty()) {
+        if (this.folder == null) {
+            Logger.debug(
+                this,
+                "No XSD folder, class '%s' won't be validated",
+                type.getName()
+            );
+        } else if (name.isEmpty()) {
             Logger.debug(
                 this,
                 "Schema validation turned off for class '%s'",
                 type.getName()
             );
         } else {
-            final File xsd = new File(this.folder, name);
+            xsd = new File(this.folder, name);
             if (xsd.exists()) {
-                final SchemaFactory factory = SchemaFactory.newInstance(
-                    XMLConstants.W3C_XML_SCHEMA_NS_URI
-                );
-                try {
-                    mrsh.setSchema(factory.newSchema(xsd));
-                } catch (final SAXException ex) {
-                    throw new IllegalStateException(
-                        Logger.format(
-                            "Failed to use XSD schema from '%s' for class '%s'",
-                            xsd,
-                            type.getName()
-                        ),
-                        ex
-                    );
-                }
-                try {
-                    mrsh.setEventHandler(new XsdEventHandler());
-                } catch (final JAXBException ex) {
-                    throw new IllegalStateException(ex);
-                }
                 Logger.debug(
                     this,
                     "Class '%s' will be validated with '%s' schema",
@@ -312,8 +651,67 @@ public final class XslResolver implements ContextResolver<Marshaller> {
                     type.getName(),
                     xsd
                 );
+                xsd = null;
             }
         }
+        return xsd;
+    }
+
+    /**
+     * Parse sampling rate of XSD validation.
+     * @param text Value of {@link #XSD_SAMPLING} init parameter
+     * @return Validate one of that many responses
+     */
+    private static int rate(final String text) {
+        int rate;
+        try {
+            rate = Integer.parseInt(text.trim());
+        } catch (final NumberFormatException ex) {
+            rate = 0;
+        }
+        if (rate < 1) {
+            throw new IllegalArgumentException(
+                Logger.format(
+                    "'%s' init parameter must be a positive integer: '%s'",
+                    XslResolver.XSD_SAMPLING,
+                    text
+                )
+            );
+        }
+        return rate;
+    }
+
+    /**
+     * Register audit of XSD in JMX, replacing the one registered before
+     * for the same servlet context, if any.
+     * @param ctx Servlet context
+     * @param bean The audit
+     * @return Its name in JMX or NULL if it is not registered
+     */
+    private static ObjectName expose(final ServletContext ctx,
+        final XsdAudit bean) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = null;
+        try {
+            name = new ObjectName(
+                String.format(
+                    "com.rexsl.core:type=XsdAudit,name=%s",
+                    ObjectName.quote(String.valueOf(ctx.getContextPath()))
+                )
+            );
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(bean, name);
+        } catch (final JMException ex) {
+            Logger.warn(
+                XslResolver.class,
+                "#expose(): failed to register XSD audit in JMX: %s",
+                ex.getMessage()
+            );
+            name = null;
+        }
+        return name;
     }
 
     /**
@@ -336,4 +734,139 @@ public final class XslResolver implements ContextResolver<Marshaller> {
         return schema;
     }
 
+    /**
+     * Key of a pool of marshallers.
+     *
+     * <p>It doesn't depend on the request, since the {@code xml-stylesheet}
+     * header, which does, is set to every response by
+     * {@link PooledMarshaller}. Otherwise every host name sent by clients
+     * would get its own pool.
+     */
+    @EqualsAndHashCode(of = { "context", "type" })
+    private static final class Key {
+        /**
+         * JAXB context.
+         */
+        private final transient JAXBContext context;
+        /**
+         * Type to marshal.
+         */
+        private final transient Class<?> type;
+        /**
+         * Public ctor.
+         * @param ctx JAXB context
+         * @param cls Type to marshal
+         */
+        Key(final JAXBContext ctx, final Class<?> cls) {
+            this.context = ctx;
+            this.type = cls;
+        }
+    }
+
+    /**
+     * Pool of configured marshallers, and their factory.
+     */
+    private final class Pool implements Callable<Marshaller> {
+        /**
+         * Idle marshallers.
+         */
+        private final transient Queue<Marshaller> idle =
+            new ArrayBlockingQueue<Marshaller>(XslResolver.POOL);
+        /**
+         * JAXB context.
+         */
+        private final transient JAXBContext context;
+        /**
+         * Type to marshal.
+         */
+        private final transient Class<?> type;
+        /**
+         * XSD file to validate against or NULL.
+         */
+        private final transient File xsd;
+        /**
+         * Compiled schema, which idle marshallers are configured with.
+         */
+        private transient volatile javax.xml.validation.Schema schema;
+        /**
+         * Public ctor.
+         * @param ctx JAXB context
+         * @param cls Type to marshal
+         */
+        Pool(final JAXBContext ctx, final Class<?> cls) {
+            this.context = ctx;
+            this.type = cls;
+            this.xsd = XslResolver.this.xsd(cls);
+        }
+        @Override
+        public Marshaller call() throws JAXBException {
+            final Marshaller mrsh = this.context.createMarshaller();
+            mrsh.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+            if (this.xsd != null && XslResolver.this.audit == null) {
+                mrsh.setSchema(this.schema);
+                mrsh.setEventHandler(new XsdEventHandler());
+            }
+            return mrsh;
+        }
+        /**
+         * Make sure idle marshallers use the latest schema, dropping them
+         * if the XSD file was modified.
+         */
+        public void refresh() {
+            if (this.xsd != null) {
+                final javax.xml.validation.Schema latest;
+                try {
+                    latest = XslResolver.this.schemas.get(this.xsd);
+                } catch (final SAXException ex) {
+                    throw new IllegalStateException(
+                        Logger.format(
+                            "Failed to use XSD schema from '%s' for class '%s'",
+                            this.xsd,
+                            this.type.getName()
+                        ),
+                        ex
+                    );
+                }
+                if (!latest.equals(this.schema)) {
+                    this.schema = latest;
+                    this.idle.clear();
+                }
+            }
+        }
+        /**
+         * Decide whether to validate the next response in background.
+         * @return Sample to validate or NULL
+         */
+        public XsdAudit.Sample sample() {
+            XsdAudit.Sample sample = null;
+            if (this.xsd != null && XslResolver.this.audit != null) {
+                sample = XslResolver.this.audit.sample(this.schema, this.type);
+            }
+            return sample;
+        }
+    }
+
+    /**
+     * Immutable snapshot of JAXB context and its classes.
+     */
+    private static final class Snapshot {
+        /**
+         * JAXB context or NULL if it's not built yet.
+         */
+        private final transient JAXBContext context;
+        /**
+         * Classes in the context.
+         */
+        private final transient Set<Class<?>> classes;
+        /**
+         * Public ctor.
+         * @param ctx JAXB context
+         * @param types Classes in it
+         */
+        Snapshot(final JAXBContext ctx, final Set<Class<?>> types) {
+            this.context = ctx;
+            this.classes = Collections.unmodifiableSet(types);
+        }
+    }
+
 }
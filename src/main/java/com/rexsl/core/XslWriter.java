@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.aspects.Loggable;
+import com.rexsl.core.annotations.Stylesheet;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.xml.sax.ContentHandler;
+
+/**
+ * Writer of pages, which transforms them to HTML straight from JAXB,
+ * when they have to be transformed on server.
+ *
+ * <p>You don't need to use this class directly. It is made public only
+ * because JAX-RS implementation should be able to discover it in
+ * classpath. It writes objects of classes annotated with both
+ * {@link XmlRootElement} and {@link Stylesheet} (for example, pages made
+ * by {@code com.rexsl.page.PageBuilder}), but only if the request passed
+ * through {@link XsltFilter} configured with {@link XsltFilter#PIPELINE}
+ * set to {@code sax} (the filter marks such requests with an attribute).
+ * Otherwise, they are written by the default JAXB writer of JAX-RS
+ * implementation.
+ *
+ * <p>The page is marshalled by the marshaller of {@link XslResolver},
+ * either straight into the compiled stylesheet, as SAX events, or, when
+ * the client transforms it itself, into XML text, as usual.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString
+@EqualsAndHashCode
+@Provider
+@Produces({ MediaType.APPLICATION_XML, MediaType.TEXT_XML })
+@Loggable(Loggable.DEBUG)
+public final class XslWriter implements MessageBodyWriter<Object> {
+
+    /**
+     * Servlet request.
+     */
+    private transient HttpServletRequest request;
+
+    /**
+     * Providers of JAX-RS implementation.
+     */
+    private transient Providers providers;
+
+    /**
+     * Set servlet request from container.
+     * @param req The request
+     */
+    @Context
+    public void setHttpServletRequest(@NotNull final HttpServletRequest req) {
+        this.request = req;
+    }
+
+    /**
+     * Set providers from container.
+     * @param prvdrs Providers
+     */
+    @Context
+    public void setProviders(@NotNull final Providers prvdrs) {
+        this.providers = prvdrs;
+    }
+
+    @Override
+    public boolean isWriteable(final Class<?> type, final Type generic,
+        final Annotation[] annotations, final MediaType media) {
+        return type.isAnnotationPresent(XmlRootElement.class)
+            && type.isAnnotationPresent(Stylesheet.class)
+            && this.filter() != null;
+    }
+
+    @Override
+    public long getSize(final Object page, final Class<?> type,
+        final Type generic, final Annotation[] annotations,
+        final MediaType media) {
+        return -1L;
+    }
+
+    // @checkstyle ParameterNumber (4 lines)
+    @Override
+    public void writeTo(final Object page, final Class<?> type,
+        final Type generic, final Annotation[] annotations,
+        final MediaType media, final MultivaluedMap<String, Object> headers,
+        final OutputStream entity) throws IOException {
+        final XslWriter.Page pge = new XslWriter.Page(
+            page, this.marshaller(type, media)
+        );
+        final XsltFilter filter = this.filter();
+        try {
+            if (filter == null || !filter.render(
+                this.request, headers, entity,
+                type.getAnnotation(Stylesheet.class).value(), pge
+            )) {
+                pge.marshal(entity);
+            }
+        } catch (final ServletException ex) {
+            throw new WebApplicationException(ex);
+        } catch (final JAXBException ex) {
+            throw new WebApplicationException(ex);
+        }
+    }
+
+    /**
+     * Get filter the request passed through, which transforms pages
+     * straight from JAXB.
+     * @return The filter or NULL if pages are transformed as XML text
+     */
+    private XsltFilter filter() {
+        XsltFilter filter = null;
+        if (this.request != null) {
+            final Object attr = this.request.getAttribute(
+                XsltFilter.class.getName()
+            );
+            if (attr instanceof XsltFilter) {
+                filter = XsltFilter.class.cast(attr);
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * Get marshaller for this type, configured by {@link XslResolver}.
+     * @param type The type
+     * @param media Media type
+     * @return Marshaller
+     */
+    private Marshaller marshaller(final Class<?> type, final MediaType media) {
+        final ContextResolver<Marshaller> resolver =
+            this.providers.getContextResolver(Marshaller.class, media);
+        if (resolver == null) {
+            throw new IllegalStateException(
+                String.format("no JAXB marshaller for %s", media)
+            );
+        }
+        return resolver.getContext(type);
+    }
+
+    /**
+     * Page and its marshaller.
+     */
+    @ToString(of = "page")
+    static final class Page {
+        /**
+         * The page.
+         */
+        private final transient Object page;
+        /**
+         * Marshaller.
+         */
+        private final transient Marshaller marshaller;
+        /**
+         * Public ctor.
+         * @param obj The page
+         * @param mrsh Marshaller of it
+         */
+        Page(final Object obj, final Marshaller mrsh) {
+            this.page = obj;
+            this.marshaller = mrsh;
+        }
+        /**
+         * Marshal it as SAX events.
+         * @param handler Where to send them
+         * @throws JAXBException If fails
+         */
+        public void marshal(final ContentHandler handler)
+            throws JAXBException {
+            this.marshaller.marshal(this.page, handler);
+        }
+        /**
+         * Marshal it as XML text.
+         * @param stream Where to write it
+         * @throws JAXBException If fails
+         */
+        public void marshal(final OutputStream stream) throws JAXBException {
+            this.marshaller.marshal(this.page, stream);
+        }
+    }
+
+}
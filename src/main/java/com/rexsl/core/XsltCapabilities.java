@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Properties;
+import javax.validation.constraints.NotNull;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Table of user agents which can transform XML with XSL stylesheets
+ * themselves.
+ *
+ * <p>The table is loaded from properties, where keys are product tokens
+ * of {@code User-Agent} header and values are minimum versions of them:
+ *
+ * <pre> Chrome = 10
+ * Safari = Version/5
+ * Googlebot = -</pre>
+ *
+ * <p>The version may belong to another token, as in the example above,
+ * where Safari is capable only if {@code Version} token is 5 or higher.
+ * A minus means that agents with this token are never capable, even if
+ * they match other lines of the table. The default table is loaded from
+ * {@code xslt-capable.properties} in this package.
+ *
+ * <p>The class is immutable and thread-safe.
+ *
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ * @since 2.0
+ */
+@ToString
+@EqualsAndHashCode(of = { "rules", "denied" })
+final class XsltCapabilities {
+
+    /**
+     * Default table.
+     */
+    public static final XsltCapabilities DEFAULT =
+        XsltCapabilities.defaults();
+
+    /**
+     * Value that denies XSLT.
+     */
+    private static final String DENY = "-";
+
+    /**
+     * Rules of capable agents.
+     */
+    private final transient Collection<XsltCapabilities.Rule> rules =
+        new LinkedList<XsltCapabilities.Rule>();
+
+    /**
+     * Tokens of agents which are never capable.
+     */
+    private final transient Collection<String> denied = new HashSet<String>(0);
+
+    /**
+     * Public ctor.
+     * @param props Table, as explained above
+     */
+    XsltCapabilities(@NotNull final Properties props) {
+        for (final String token : props.stringPropertyNames()) {
+            final String value = props.getProperty(token).trim();
+            if (XsltCapabilities.DENY.equals(value)) {
+                this.denied.add(token);
+            } else if (value.contains("/")) {
+                final String[] parts = value.split("/", 2);
+                this.rules.add(
+                    new XsltCapabilities.Rule(token, parts[0], parts[1])
+                );
+            } else {
+                this.rules.add(new XsltCapabilities.Rule(token, token, value));
+            }
+        }
+    }
+
+    /**
+     * Load table from a stream.
+     * @param stream Stream with properties, will be closed
+     * @return Table
+     * @throws IOException If fails to read
+     */
+    public static XsltCapabilities load(@NotNull final InputStream stream)
+        throws IOException {
+        final Properties props = new Properties();
+        try {
+            props.load(stream);
+        } finally {
+            stream.close();
+        }
+        return new XsltCapabilities(props);
+    }
+
+    /**
+     * Can an agent with these tokens transform XML itself?
+     * @param tokens Product tokens of the agent and their versions
+     * @return TRUE if it can
+     */
+    public boolean isCapable(
+        @NotNull final Map<String, ProductVersion> tokens) {
+        boolean capable = false;
+        for (final XsltCapabilities.Rule rule : this.rules) {
+            if (rule.matches(tokens)) {
+                capable = true;
+                break;
+            }
+        }
+        if (capable) {
+            for (final String token : this.denied) {
+                if (tokens.containsKey(token)) {
+                    capable = false;
+                    break;
+                }
+            }
+        }
+        return capable;
+    }
+
+    /**
+     * Load the default table.
+     * @return Table
+     */
+    private static XsltCapabilities defaults() {
+        final InputStream stream = XsltCapabilities.class
+            .getResourceAsStream("xslt-capable.properties");
+        if (stream == null) {
+            throw new IllegalStateException(
+                "xslt-capable.properties not found in classpath"
+            );
+        }
+        try {
+            return XsltCapabilities.load(stream);
+        } catch (final IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Rule of a capable agent.
+     */
+    @ToString
+    @EqualsAndHashCode(of = { "product", "token", "min" })
+    private static final class Rule {
+        /**
+         * Product token, which must be present.
+         */
+        private final transient String product;
+        /**
+         * Token with the version to check.
+         */
+        private final transient String token;
+        /**
+         * Minimum version.
+         */
+        private final transient ProductVersion min;
+        /**
+         * Public ctor.
+         * @param prod Product token
+         * @param tkn Token with the version
+         * @param ver Minimum version
+         */
+        Rule(final String prod, final String tkn, final String ver) {
+            this.product = prod;
+            this.token = tkn;
+            this.min = new ProductVersion(ver.trim());
+        }
+        /**
+         * Does the agent match this rule?
+         * @param tokens Product tokens of the agent and their versions
+         * @return TRUE if it matches
+         */
+        public boolean matches(final Map<String, ProductVersion> tokens) {
+            final ProductVersion found = tokens.get(this.token);
+            return tokens.containsKey(this.product)
+                && found != null && found.compareTo(this.min) >= 0;
+        }
+    }
+
+}
@@ -33,9 +33,20 @@ import com.jcabi.aspects.Loggable;
 import com.jcabi.log.Logger;
 import com.jcabi.manifests.Manifests;
 import com.jcabi.manifests.ServletMfs;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.Deflater;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -47,17 +58,26 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
-import javax.xml.transform.Source;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.xml.bind.JAXBException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
+import net.sf.saxon.Controller;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang3.CharEncoding;
+import org.apache.commons.lang3.StringUtils;
 
 /**
  * Converts XML to XHTML, if necessary.
@@ -78,6 +98,85 @@ import org.apache.commons.lang3.CharEncoding;
  *  &lt;dispatcher>ERROR&lt;/dispatcher>
  * &lt;/filter-mapping></pre>
  *
+ * <p>Compiled stylesheets are cached in memory, up to
+ * {@link #TEMPLATES} of them (256 by default). Set this init parameter
+ * to zero in order to compile a stylesheet on every request.
+ *
+ * <p>Files of compiled stylesheets, together with everything they import
+ * or include, are checked for modifications every {@link #RELOAD}
+ * seconds (zero by default, which means that they are never checked, as
+ * it should be in production). When a file is modified all stylesheets
+ * depending on it are compiled again, on next request.
+ *
+ * <p>Values of {@code User-Agent} and {@code Accept} headers are parsed
+ * only once, and the decision whether to transform a page for them is
+ * cached, for up to {@link #CLIENTS} distinct pairs of them (1024
+ * by default). Pages are not transformed for browsers which can do it
+ * themselves, according to the table of them in the servlet context
+ * resource named by {@link #CAPABILITIES}, for example
+ * {@code /WEB-INF/xslt.properties} (see {@code xslt-capable.properties}
+ * in this package, which is used by default, for its format).
+ * Browsers may also prove that they can transform XML themselves, with
+ * a probe, which is enabled by {@link #PROBE} (see {@link Probe}).
+ *
+ * <p>Transformed pages may be cached too, if {@link #RENDERED} is set
+ * to the maximum total size of them, in kilobytes (zero by default, which
+ * means that nothing is cached). Pages are keyed by the digest of their
+ * XML documents and by compiled stylesheets, that's why an XML document
+ * which is identical to one seen before is not transformed again.
+ *
+ * <p>Transformed pages and XML documents may be compressed, if the client
+ * accepts {@code gzip} or {@code deflate} coding and {@link #COMPRESSION}
+ * is set to the compression level (zero by default, which means that
+ * nothing is compressed). Compressed pages are cached too.
+ *
+ * <p>Stylesheets may be compiled when the filter starts, before the first
+ * request, if {@link #PRECOMPILE} is set to a comma-separated list of
+ * folders in servlet context, for example {@code /xsl/}. All {@code .xsl}
+ * files found there are compiled in parallel and the filter fails to start
+ * if any of them is broken.
+ *
+ * <p>The number of concurrent transformations may be limited by
+ * {@link #THREADS} (zero by default, which means no limit), with not more
+ * than {@link #QUEUE} requests waiting for their turn (zero by default).
+ * Other requests are not transformed: they get {@code 503 Service
+ * Unavailable} or, if {@link #OVERLOAD} is set to {@code xml}, their
+ * XML documents as is, to be transformed by clients.
+ *
+ * <p>Templates of stylesheets may be profiled, if {@link #PROFILE} is
+ * set to {@code N}, which means that one of every {@code N} transformations
+ * is traced (zero by default, which means that nothing is profiled).
+ * The hottest templates, with their inclusive and exclusive times, are
+ * available through JMX, as {@code com.rexsl.core:type=Profiler} MBean,
+ * and are logged when the filter is destroyed. Only Saxon stylesheets
+ * can be profiled. Traced transformations use a copy of the stylesheet
+ * compiled with tracing, others are not slowed down by it.
+ *
+ * <p>Pages of clients capable of XSLT are transformed by them. If
+ * {@link #PLACEMENT} is set, they are transformed by them only while
+ * the server is loaded, and on server while it is idle (see
+ * {@link Placement}). The load is either {@code system} load average,
+ * or {@code queue} of transformations (see {@link #THREADS}), or
+ * the name of a class implementing {@link Load}. Placement switches
+ * to clients at {@link #HIGH_LOAD} percent (80 by default) and back
+ * to server at {@link #LOW_LOAD} percent (50 by default). The current
+ * placement is available through JMX, as
+ * {@code com.rexsl.core:type=Placement} MBean.
+ *
+ * <p>Pages may be transformed straight from JAXB, without marshalling them
+ * to XML text and parsing it again, if {@link #PIPELINE} is set to
+ * {@code sax} ({@code text} by default). Then {@link XslWriter} writes
+ * pages of classes annotated with {@link com.rexsl.core.annotations.Stylesheet}
+ * and makes the same decision whether to transform them as the filter
+ * the request passed through does; JAXB events go directly to the
+ * compiled stylesheet. Such pages
+ * don't get {@code ETag} headers and are not cached by {@link #RENDERED}.
+ *
+ * <p>Successful responses get strong {@code ETag} headers, calculated
+ * from the XML document and the stylesheet. Matching
+ * {@code If-None-Match} requests get {@code 304 Not Modified} without
+ * transformation. {@code HEAD} requests are never transformed.
+ *
  * @author Yegor Bugayenko (yegor@tpc2.com)
  * @author Krzysztof Krason (Krzysztof.Krason@gmail.com)
  * @version $Id$
@@ -89,11 +188,230 @@ import org.apache.commons.lang3.CharEncoding;
 @Loggable(Loggable.DEBUG)
 public final class XsltFilter implements Filter {
 
+    /**
+     * Maximum number of compiled stylesheets to keep in memory
+     * (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String TEMPLATES = "com.rexsl.core.TEMPLATES";
+
+    /**
+     * Delay in seconds between checks of stylesheet files for modifications
+     * (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String RELOAD = "com.rexsl.core.RELOAD";
+
+    /**
+     * Maximum number of distinct {@code User-Agent} and {@code Accept}
+     * header pairs to keep parsed in memory (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String CLIENTS = "com.rexsl.core.CLIENTS";
+
+    /**
+     * Path of servlet context resource with the table of browsers
+     * capable of XSLT (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String CAPABILITIES = "com.rexsl.core.CAPABILITIES";
+
+    /**
+     * Secret key of capability cookies, which enables probing of
+     * client-side XSLT (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String PROBE = "com.rexsl.core.PROBE";
+
+    /**
+     * Maximum total size in kilobytes of transformed pages to keep
+     * in memory (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String RENDERED = "com.rexsl.core.RENDERED";
+
+    /**
+     * Compression level of pages, from 1 to 9, zero disables compression
+     * (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String COMPRESSION = "com.rexsl.core.COMPRESSION";
+
+    /**
+     * Comma-separated folders in servlet context with stylesheets to compile
+     * when the filter starts (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String PRECOMPILE = "com.rexsl.core.PRECOMPILE";
+
+    /**
+     * Maximum number of concurrent transformations, zero means no limit
+     * (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String THREADS = "com.rexsl.core.THREADS";
+
+    /**
+     * Maximum number of requests waiting for transformation
+     * (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String QUEUE = "com.rexsl.core.QUEUE";
+
+    /**
+     * What to do with requests not transformed because of overload,
+     * either {@code 503} or {@code xml} (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String OVERLOAD = "com.rexsl.core.OVERLOAD";
+
+    /**
+     * Profile one of every so many transformations, zero disables profiling
+     * (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String PROFILE = "com.rexsl.core.PROFILE";
+
+    /**
+     * Load signal, which makes placement of transformation adaptive
+     * (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String PLACEMENT = "com.rexsl.core.PLACEMENT";
+
+    /**
+     * Load level in percent, at which pages of capable clients are
+     * transformed by them (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String HIGH_LOAD = "com.rexsl.core.HIGH_LOAD";
+
+    /**
+     * Load level in percent, at which pages of capable clients are
+     * transformed on server again (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String LOW_LOAD = "com.rexsl.core.LOW_LOAD";
+
+    /**
+     * How pages are passed to XSLT, either as XML {@code text} or as
+     * {@code sax} events straight from JAXB (name of filter init parameter).
+     * @since 2.0
+     */
+    public static final String PIPELINE = "com.rexsl.core.PIPELINE";
+
+    /**
+     * Saxon feature, which makes stylesheets report to trace listeners.
+     */
+    private static final String TRACING =
+        "http://saxon.sf.net/feature/compile-with-tracing";
+
+    /**
+     * How many hot templates to log.
+     */
+    private static final int HOT = 10;
+
+    /**
+     * Size of the buffer between transformation and servlet output stream.
+     */
+    private static final int BUFFER = 8192;
+
+    /**
+     * Kilobyte.
+     */
+    private static final long KILO = 1024L;
+
+    /**
+     * Default maximum number of compiled stylesheets.
+     */
+    private static final int MAX_TEMPLATES = 256;
+
+    /**
+     * Default maximum number of parsed clients.
+     */
+    private static final int MAX_CLIENTS = 1024;
+
+    /**
+     * Default load level to transform on clients at, in percent.
+     */
+    private static final int HIGH_LEVEL = 80;
+
+    /**
+     * Default load level to transform on server at, in percent.
+     */
+    private static final int LOW_LEVEL = 50;
+
+    /**
+     * Percent.
+     */
+    private static final double PERCENT = 100.0d;
+
     /**
      * XSLT factory.
      */
     private transient TransformerFactory tfactory;
 
+    /**
+     * Compiled stylesheets.
+     */
+    private transient TemplatesCache templates;
+
+    /**
+     * Watcher of stylesheet files.
+     */
+    private transient StylesheetWatch watch;
+
+    /**
+     * Parsed clients.
+     */
+    private transient ClientCache clients;
+
+    /**
+     * Probe of client-side XSLT.
+     */
+    private transient Probe probe;
+
+    /**
+     * Transformed pages.
+     */
+    private transient RenderCache rendered;
+
+    /**
+     * Compression of pages.
+     */
+    private transient Compression compression;
+
+    /**
+     * Limit of concurrent transformations.
+     */
+    private transient Bulkhead bulkhead;
+
+    /**
+     * Send XML documents as is when overloaded?
+     */
+    private transient boolean fallback;
+
+    /**
+     * Profiler of templates.
+     */
+    private transient Profiler profiler;
+
+    /**
+     * Placement of transformation.
+     */
+    private transient Placement placement;
+
+    /**
+     * Is the filter published in requests for {@link XslWriter}?
+     */
+    private transient boolean published;
+
+    /**
+     * Names of MBeans registered in JMX.
+     */
+    private final transient Collection<ObjectName> mbeans =
+        new CopyOnWriteArrayList<ObjectName>();
+
     /**
      * {@inheritDoc}
      * @checkstyle RedundantThrows (4 lines)
@@ -117,7 +435,67 @@ public final class XsltFilter implements Filter {
             );
         }
         final ServletContext context = config.getServletContext();
-        this.tfactory.setURIResolver(new ContextResourceResolver(context));
+        this.watch = new StylesheetWatch(
+            context, new ContextResourceResolver(context)
+        );
+        this.tfactory.setURIResolver(this.watch);
+        this.templates = new TemplatesCache(
+            this.tfactory,
+            XsltFilter.param(
+                config, XsltFilter.TEMPLATES, XsltFilter.MAX_TEMPLATES
+            ),
+            this.watch,
+            this.profile(
+                config, XsltFilter.param(config, XsltFilter.PROFILE, 0)
+            )
+        );
+        final String folders = config.getInitParameter(XsltFilter.PRECOMPILE);
+        if (folders != null && !folders.trim().isEmpty()) {
+            new Precompiler(context, this.templates).compile(
+                folders.split(",")
+            );
+        }
+        this.clients = new ClientCache(
+            XsltFilter.param(
+                config, XsltFilter.CLIENTS, XsltFilter.MAX_CLIENTS
+            ),
+            XsltFilter.capabilities(config)
+        );
+        this.probe = new Probe(config.getInitParameter(XsltFilter.PROBE));
+        this.rendered = new RenderCache(
+            XsltFilter.KILO * XsltFilter.param(config, XsltFilter.RENDERED, 0)
+        );
+        final int level = XsltFilter.param(config, XsltFilter.COMPRESSION, 0);
+        if (level < 0 || level > Deflater.BEST_COMPRESSION) {
+            throw new ServletException(
+                Logger.format(
+                    "'%s' filter parameter must be between 0 and 9: %d",
+                    XsltFilter.COMPRESSION, level
+                )
+            );
+        }
+        this.compression = new Compression(level);
+        this.bulkhead = new Bulkhead(
+            XsltFilter.param(config, XsltFilter.THREADS, 0),
+            XsltFilter.param(config, XsltFilter.QUEUE, 0)
+        );
+        final String overload = config.getInitParameter(XsltFilter.OVERLOAD);
+        if (overload != null && !"503".equals(overload.trim())
+            && !"xml".equals(overload.trim())) {
+            throw new ServletException(
+                Logger.format(
+                    "'%s' filter parameter must be either '503' or 'xml': '%s'",
+                    XsltFilter.OVERLOAD, overload
+                )
+            );
+        }
+        this.fallback = overload != null && "xml".equals(overload.trim());
+        this.placement = this.placement(config);
+        final int delay = XsltFilter.param(config, XsltFilter.RELOAD, 0);
+        if (delay > 0) {
+            this.watch.start(this.templates, delay);
+        }
+        this.publish(config);
         try {
             Manifests.DEFAULT.append(new ServletMfs(context));
         } catch (final IOException ex) {
@@ -136,11 +514,16 @@ public final class XsltFilter implements Filter {
         final FilterChain chain) throws IOException, ServletException {
         if (req instanceof HttpServletRequest
             && res instanceof HttpServletResponse) {
-            this.filter(
-                HttpServletRequest.class.cast(req),
-                HttpServletResponse.class.cast(res),
-                chain
-            );
+            final HttpServletRequest request =
+                HttpServletRequest.class.cast(req);
+            final HttpServletResponse response =
+                HttpServletResponse.class.cast(res);
+            if (this.published) {
+                request.setAttribute(XsltFilter.class.getName(), this);
+            }
+            if (!this.probe.serve(request, response)) {
+                this.filter(request, response, chain);
+            }
         } else {
             chain.doFilter(req, res);
         }
@@ -148,7 +531,64 @@ public final class XsltFilter implements Filter {
 
     @Override
     public void destroy() {
-        // nothing to do
+        if (this.watch != null) {
+            this.watch.close();
+        }
+        if (this.templates != null) {
+            Logger.info(
+                this,
+                "#destroy(): %d stylesheet(s) cached, %d hit(s), %d miss(es)",
+                this.templates.size(),
+                this.templates.hits(),
+                this.templates.misses()
+            );
+        }
+        if (this.clients != null) {
+            Logger.info(
+                this,
+                "#destroy(): %d client(s) cached, %d hit(s), %d miss(es)",
+                this.clients.size(),
+                this.clients.hits(),
+                this.clients.misses()
+            );
+        }
+        if (this.rendered != null && this.rendered.isEnabled()) {
+            Logger.info(
+                this,
+                "#destroy(): %d byte(s) of pages, %d hit(s), %d miss(es)",
+                this.rendered.bytes(),
+                this.rendered.hits(),
+                this.rendered.misses()
+            );
+        }
+        if (this.profiler != null && this.profiler.isEnabled()) {
+            Logger.info(
+                this,
+                "#destroy(): %d transformation(s) profiled, hot templates:\n%s",
+                this.profiler.getSamples(),
+                StringUtils.join(this.profiler.top(XsltFilter.HOT), "\n")
+            );
+        }
+        for (final ObjectName mbean : this.mbeans) {
+            try {
+                ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(mbean);
+            } catch (final JMException ex) {
+                Logger.warn(
+                    this, "#destroy(): failed to unregister %s: %s",
+                    mbean, ex
+                );
+            }
+        }
+        this.mbeans.clear();
+        if (this.bulkhead != null && this.bulkhead.isEnabled()) {
+            Logger.info(
+                this,
+                "#destroy(): %d request(s) rejected by %s",
+                this.bulkhead.rejected(),
+                this.bulkhead
+            );
+        }
     }
 
     /**
@@ -167,115 +607,684 @@ public final class XsltFilter implements Filter {
         throws IOException, ServletException {
         final ByteArrayResponseWrapper wrapper =
             new ByteArrayResponseWrapper(response);
-        chain.doFilter(request, wrapper);
-        if (!response.isCommitted()) {
-            byte[] data = wrapper.getByteArray();
-            String page = new String(data, CharEncoding.UTF_8);
-            final PageAnalyzer analyzer = new PageAnalyzer(page, request);
-            if (analyzer.needsTransformation()) {
-                page = this.transform(page);
-                data = page.getBytes(CharEncoding.UTF_8);
-                response.setContentType(MediaType.TEXT_HTML);
-                response.setCharacterEncoding(CharEncoding.UTF_8);
-                response.setContentLength(data.length);
+        try {
+            chain.doFilter(request, wrapper);
+            if (wrapper.isDirect()) {
+                wrapper.flush();
+            } else if (!response.isCommitted()) {
+                this.render(request, response, wrapper);
+            }
+        } finally {
+            wrapper.release();
+        }
+    }
+
+    /**
+     * Send buffered response to the client, transforming it if necessary.
+     *
+     * <p>Successful responses get strong entity tags, made of the digest
+     * of XML document and the tag of compiled stylesheet (if the document
+     * is transformed). When the tag matches {@code If-None-Match} header
+     * of the request, {@code 304} is returned without any transformation.
+     *
+     * @param request The request
+     * @param response The response
+     * @param wrapper The response wrapper with buffered page
+     * @throws IOException If something goes wrong
+     * @throws ServletException If something goes wrong
+     * @checkstyle ThrowsCount (6 lines)
+     * @checkstyle RedundantThrows (5 lines)
+     */
+    private void render(final HttpServletRequest request,
+        final HttpServletResponse response,
+        final ByteArrayResponseWrapper wrapper)
+        throws IOException, ServletException {
+        final Prolog prolog = new Prolog(wrapper.getInputStream());
+        final PageAnalyzer analyzer = new PageAnalyzer(
+            prolog, request, this.clients, this.probe, this.placement
+        );
+        if (analyzer.needsTransformation()) {
+            final TemplatesCache.Compiled xsl =
+                this.compiled(request, prolog.stylesheet());
+            if (this.bulkhead.enter()) {
+                try {
+                    final String coding = this.coding(request, response);
+                    if (!XsltFilter.fresh(
+                        request, response, wrapper,
+                        XsltFilter.suffix(xsl.tag(), coding)
+                    )) {
+                        this.html(request, response, wrapper, xsl, coding);
+                    }
+                } finally {
+                    this.bulkhead.leave();
+                }
+            } else {
+                this.overload(request, response, wrapper);
+            }
+        } else if (prolog.isDeclared()) {
+            final String coding = this.coding(request, response);
+            if (!XsltFilter.fresh(
+                request, response, wrapper, XsltFilter.suffix("xml", coding)
+            )) {
+                this.xml(request, response, wrapper, coding);
+            }
+        } else {
+            XsltFilter.raw(request, response, wrapper);
+        }
+    }
+
+    /**
+     * Send a page, which is not marshalled yet, to the client, transforming
+     * it straight from JAXB events, if necessary.
+     *
+     * <p>It is called by {@link XslWriter}, before anything is written to
+     * the response. The page is transformed only if the client needs HTML
+     * and there is capacity for transformation. Otherwise, it has to be
+     * marshalled to XML, which will come back to this filter and will be
+     * sent as usual (or rejected, if the filter is overloaded).
+     *
+     * @param request The request
+     * @param headers Headers of the response, not sent yet
+     * @param entity Stream to write the page to
+     * @param stylesheet HREF of the stylesheet
+     * @param page The page and its marshaller
+     * @return TRUE if the page is sent, FALSE if it has to be sent as XML
+     * @throws IOException If something goes wrong
+     * @throws ServletException If something goes wrong
+     * @checkstyle ThrowsCount (9 lines)
+     * @checkstyle RedundantThrows (8 lines)
+     * @checkstyle ParameterNumber (5 lines)
+     */
+    boolean render(final HttpServletRequest request,
+        final MultivaluedMap<String, Object> headers,
+        final OutputStream entity, final String stylesheet,
+        final XslWriter.Page page) throws IOException, ServletException {
+        final Client client = this.clients.get(
+            request.getHeader(HttpHeaders.USER_AGENT),
+            request.getHeader(HttpHeaders.ACCEPT),
+            this.probe.isProven(request)
+        );
+        boolean sent = client.needsHtml(this.placement.offloads());
+        if (sent) {
+            final TemplatesCache.Compiled xsl =
+                this.compiled(request, stylesheet);
+            sent = this.bulkhead.enter();
+            if (sent) {
+                try {
+                    headers.putSingle(
+                        HttpHeaders.CONTENT_TYPE,
+                        new MediaType(
+                            MediaType.TEXT_HTML_TYPE.getType(),
+                            MediaType.TEXT_HTML_TYPE.getSubtype(),
+                            Collections.singletonMap(
+                                "charset", CharEncoding.UTF_8
+                            )
+                        )
+                    );
+                    final String coding = this.coding(request, headers);
+                    if (!XsltFilter.head(request)) {
+                        final OutputStream output = this.compression.open(
+                            coding,
+                            new BufferedOutputStream(entity, XsltFilter.BUFFER)
+                        );
+                        try {
+                            this.transform(page, xsl, output);
+                        } finally {
+                            output.close();
+                        }
+                    }
+                } finally {
+                    this.bulkhead.leave();
+                }
             }
-            response.getOutputStream().write(data);
         }
+        return sent;
+    }
+
+    /**
+     * Send transformed page to the client.
+     *
+     * <p>{@code HEAD} requests are not transformed, their
+     * {@code Content-Length} is reported only if the page is cached.
+     *
+     * @param request The request
+     * @param response The response
+     * @param wrapper The response wrapper with XML page
+     * @param xsl Compiled stylesheet associated with the page
+     * @param coding Content coding
+     * @throws IOException If something goes wrong
+     * @throws ServletException If something goes wrong
+     * @checkstyle ThrowsCount (8 lines)
+     * @checkstyle RedundantThrows (7 lines)
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    private void html(final HttpServletRequest request,
+        final HttpServletResponse response,
+        final ByteArrayResponseWrapper wrapper,
+        final TemplatesCache.Compiled xsl, final String coding)
+        throws IOException, ServletException {
+        response.setContentType(MediaType.TEXT_HTML);
+        response.setCharacterEncoding(CharEncoding.UTF_8);
+        final boolean head = XsltFilter.head(request);
+        if (this.rendered.isEnabled()) {
+            final byte[] page = this.cached(wrapper, xsl, coding, head);
+            if (page != null) {
+                response.setContentLength(page.length);
+                if (!head) {
+                    response.getOutputStream().write(page);
+                }
+            }
+        } else if (!head) {
+            final OutputStream output = this.compression.open(
+                coding,
+                new BufferedOutputStream(
+                    response.getOutputStream(), XsltFilter.BUFFER
+                )
+            );
+            try {
+                this.transform(wrapper, xsl, output);
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Get transformed page from cache, transforming and compressing it
+     * only if it's not there yet (a hit or a miss is counted once,
+     * for the coding requested).
+     * @param wrapper The response wrapper with XML page
+     * @param xsl Compiled stylesheet associated with the page
+     * @param coding Content coding
+     * @param head Is it a HEAD request, which doesn't need a transformation?
+     * @return Page or NULL if it's not cached and it's a HEAD request
+     * @throws ServletException If fails
+     * @checkstyle RedundantThrows (5 lines)
+     * @checkstyle ParameterNumber (4 lines)
+     */
+    private byte[] cached(final ByteArrayResponseWrapper wrapper,
+        final TemplatesCache.Compiled xsl, final String coding,
+        final boolean head) throws ServletException {
+        final Templates tpl = xsl.templates();
+        final byte[] digest = wrapper.digest();
+        byte[] page = this.rendered.get(tpl, digest, coding);
+        if (page == null && !head) {
+            byte[] plain = null;
+            if (!Compression.IDENTITY.equals(coding)) {
+                plain = this.rendered.peek(
+                    tpl, digest, Compression.IDENTITY
+                );
+            }
+            if (plain == null) {
+                final ByteArrayOutputStream output =
+                    new ByteArrayOutputStream(wrapper.size());
+                this.transform(wrapper, xsl, output);
+                plain = output.toByteArray();
+                this.rendered.put(tpl, digest, Compression.IDENTITY, plain);
+            }
+            if (Compression.IDENTITY.equals(coding)) {
+                page = plain;
+            } else {
+                page = this.compression.compress(coding, plain);
+                this.rendered.put(tpl, digest, coding, page);
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Reject the page which can't be transformed now, since too many
+     * transformations are running already.
+     * @param request The request
+     * @param response The response
+     * @param wrapper The response wrapper with XML page
+     * @throws IOException If something goes wrong
+     */
+    private void overload(final HttpServletRequest request,
+        final HttpServletResponse response,
+        final ByteArrayResponseWrapper wrapper) throws IOException {
+        if (this.fallback) {
+            XsltFilter.raw(request, response, wrapper);
+        } else {
+            response.sendError(
+                HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                "too many pages are being transformed, try again later"
+            );
+        }
+    }
+
+    /**
+     * Send XML document to the client, without transformation.
+     * @param request The request
+     * @param response The response
+     * @param wrapper The response wrapper with XML page
+     * @param coding Content coding
+     * @throws IOException If something goes wrong
+     */
+    private void xml(final HttpServletRequest request,
+        final HttpServletResponse response,
+        final ByteArrayResponseWrapper wrapper, final String coding)
+        throws IOException {
+        if (Compression.IDENTITY.equals(coding)) {
+            XsltFilter.raw(request, response, wrapper);
+        } else if (!XsltFilter.head(request)) {
+            final OutputStream output = this.compression.open(
+                coding, response.getOutputStream()
+            );
+            try {
+                wrapper.writeTo(output);
+            } finally {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Choose content coding of the response and set the headers.
+     * @param request The request
+     * @param response The response
+     * @return Content coding
+     */
+    private String coding(final HttpServletRequest request,
+        final HttpServletResponse response) {
+        String coding = Compression.IDENTITY;
+        if (this.compression.isEnabled()
+            && !response.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            coding = this.compression.negotiate(
+                request.getHeader(HttpHeaders.ACCEPT_ENCODING)
+            );
+            if (!Compression.IDENTITY.equals(coding)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, coding);
+            }
+        }
+        return coding;
+    }
+
+    /**
+     * Choose content coding of the response, which is not sent yet,
+     * and set the headers.
+     * @param request The request
+     * @param headers Headers of the response
+     * @return Content coding
+     */
+    private String coding(final HttpServletRequest request,
+        final MultivaluedMap<String, Object> headers) {
+        String coding = Compression.IDENTITY;
+        if (this.compression.isEnabled()
+            && !headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            coding = this.compression.negotiate(
+                request.getHeader(HttpHeaders.ACCEPT_ENCODING)
+            );
+            if (!Compression.IDENTITY.equals(coding)) {
+                headers.putSingle(HttpHeaders.CONTENT_ENCODING, coding);
+            }
+        }
+        return coding;
     }
 
     /**
      * Transform XML into HTML.
-     * @param xml XML page to be transformed.
-     * @return Resulting HTML page.
+     *
+     * <p>The document is parsed only once, straight from the bytes
+     * buffered by the wrapper, and the result goes directly to the output
+     * stream. Its stylesheet is found by {@link Prolog}, which reads the
+     * document only until the root element.
+     *
+     * @param wrapper The response wrapper with XML page to be transformed
+     * @param xsl Compiled stylesheet associated with the page
+     * @param output Where to write the resulting HTML page
      * @throws ServletException If some problem inside
-     * @checkstyle RedundantThrows (2 lines)
+     * @checkstyle RedundantThrows (3 lines)
      */
-    private String transform(final String xml) throws ServletException {
-        final StringWriter writer = new StringWriter();
+    private void transform(final ByteArrayResponseWrapper wrapper,
+        final TemplatesCache.Compiled xsl, final OutputStream output)
+        throws ServletException {
+        final boolean sampled = this.profiler.sample();
         try {
-            this.transformer(this.stylesheet(xml)).transform(
-                this.source(xml),
-                new StreamResult(writer)
+            final Transformer tran =
+                this.transformer(this.templates(xsl, sampled));
+            this.prepare(tran, sampled);
+            tran.transform(
+                new StreamSource(wrapper.getInputStream()),
+                new StreamResult(output)
             );
         } catch (final TransformerException ex) {
             throw new ServletException(
                 Logger.format(
                     "Failed to transform XML to XHTML: '%s'",
-                    xml
+                    wrapper.getText()
                 ),
                 ex
             );
         }
-        return writer.toString();
     }
 
     /**
-     * Transform XML into DOM source.
-     * @param xml XML page to be transformed.
-     * @return Source
+     * Transform the page into HTML, straight from JAXB events.
+     *
+     * <p>No XML text is made or parsed: the marshaller sends SAX events
+     * directly to the compiled stylesheet.
+     *
+     * @param page The page and its marshaller
+     * @param xsl Compiled stylesheet associated with the page
+     * @param output Where to write the resulting HTML page
+     * @throws ServletException If some problem inside
+     * @checkstyle RedundantThrows (3 lines)
      */
-    private Source source(final String xml) {
-        return new StreamSource(new StringReader(xml));
+    private void transform(final XslWriter.Page page,
+        final TemplatesCache.Compiled xsl, final OutputStream output)
+        throws ServletException {
+        final boolean sampled = this.profiler.sample();
+        final Templates tpl = this.templates(xsl, sampled);
+        try {
+            final TransformerHandler handler =
+                SAXTransformerFactory.class.cast(this.tfactory)
+                    .newTransformerHandler(tpl);
+            this.prepare(handler.getTransformer(), sampled);
+            handler.setResult(new StreamResult(output));
+            page.marshal(handler);
+        } catch (final TransformerConfigurationException ex) {
+            throw new ServletException(
+                Logger.format(
+                    "Failed to create an XSL transformer from %[type]s",
+                    tpl
+                ),
+                ex
+            );
+        } catch (final JAXBException ex) {
+            throw new ServletException(
+                Logger.format("Failed to transform %s to XHTML", page),
+                ex
+            );
+        }
     }
 
     /**
-     * Retrieve a stylesheet from this XML (throws an exception if
-     * no stylesheet is attached).
-     * @param xml The XML
-     * @return Stylesheet found
+     * Compiled stylesheet to transform a page with, which is compiled
+     * with tracing, if this transformation is profiled.
+     * @param xsl Compiled stylesheet associated with the page
+     * @param sampled Is this transformation profiled?
+     * @return Compiled stylesheet
      * @throws ServletException If fails
      * @checkstyle RedundantThrows (3 lines)
      */
-    private Source stylesheet(final String xml) throws ServletException {
-        final Source stylesheet;
+    private Templates templates(final TemplatesCache.Compiled xsl,
+        final boolean sampled) throws ServletException {
+        Templates tpl = xsl.templates();
+        if (sampled) {
+            try {
+                tpl = this.templates.traced(xsl);
+            } catch (final TransformerConfigurationException ex) {
+                throw new ServletException(
+                    "Failed to compile XSL stylesheet with tracing", ex
+                );
+            }
+        }
+        return tpl;
+    }
+
+    /**
+     * Prepare transformer for a page, attaching a profiler to it
+     * if this transformation is sampled.
+     * @param tran Transformer
+     * @param sampled Is this transformation profiled?
+     */
+    private void prepare(final Transformer tran, final boolean sampled) {
+        if (sampled && tran instanceof Controller) {
+            Controller.class.cast(tran).addTraceListener(
+                new ProfilingTrace(this.profiler)
+            );
+        }
+        tran.setOutputProperty(OutputKeys.ENCODING, CharEncoding.UTF_8);
+    }
+
+    /**
+     * Publish the filter for {@link XslWriter}, if pages have to be
+     * transformed straight from JAXB.
+     *
+     * <p>The filter is published as an attribute of every request passing
+     * through it, not of servlet context, since there may be many filters
+     * with different configurations in the same context, and requests
+     * that don't pass through any of them.
+     * @param config Filter config
+     * @throws ServletException If parameters are wrong
+     * @checkstyle RedundantThrows (3 lines)
+     */
+    private void publish(final FilterConfig config) throws ServletException {
+        final String pipeline = config.getInitParameter(XsltFilter.PIPELINE);
+        if (pipeline != null && !"text".equals(pipeline.trim())
+            && !"sax".equals(pipeline.trim())) {
+            throw new ServletException(
+                Logger.format(
+                    // @checkstyle LineLength (1 line)
+                    "'%s' filter parameter must be either 'text' or 'sax': '%s'",
+                    XsltFilter.PIPELINE, pipeline
+                )
+            );
+        }
+        if (pipeline != null && "sax".equals(pipeline.trim())) {
+            if (!this.tfactory.getFeature(SAXTransformerFactory.FEATURE)) {
+                throw new ServletException(
+                    Logger.format(
+                        "%[type]s doesn't support SAX, required by '%s'",
+                        this.tfactory, XsltFilter.PIPELINE
+                    )
+                );
+            }
+            this.published = true;
+        }
+    }
+
+    /**
+     * Enable profiling of templates, if required, and register the profiler
+     * in JMX.
+     *
+     * <p>Stylesheets are compiled with tracing by a separate factory,
+     * only for transformations which are profiled, since tracing makes
+     * all of them slower.
+     *
+     * @param config Filter config
+     * @param ratio Profile one of every so many transformations
+     * @return Factory to compile stylesheets with tracing or NULL if
+     *  profiling is disabled
+     */
+    private TransformerFactory profile(final FilterConfig config,
+        final int ratio) {
+        this.profiler = new Profiler(ratio);
+        TransformerFactory tracer = null;
+        if (this.profiler.isEnabled()) {
+            tracer = TransformerFactory.newInstance();
+            tracer.setURIResolver(this.watch);
+            try {
+                tracer.setAttribute(XsltFilter.TRACING, Boolean.TRUE);
+            } catch (final IllegalArgumentException ex) {
+                Logger.warn(
+                    this, "#profile(): %[type]s can't be profiled: %s",
+                    tracer, ex.getMessage()
+                );
+                this.profiler = new Profiler(0);
+                tracer = null;
+            }
+        }
+        if (this.profiler.isEnabled()) {
+            this.register(config, "Profiler", this.profiler);
+        }
+        return tracer;
+    }
+
+    /**
+     * Make placement of transformation, adaptive if required, and register
+     * it in JMX.
+     * @param config Filter config
+     * @return Placement
+     * @throws ServletException If parameters are wrong
+     * @checkstyle RedundantThrows (3 lines)
+     */
+    private Placement placement(final FilterConfig config)
+        throws ServletException {
+        final String name = config.getInitParameter(XsltFilter.PLACEMENT);
+        final Placement plc;
+        if (name == null) {
+            plc = new Placement();
+        } else {
+            final Load load;
+            if ("system".equals(name.trim())) {
+                load = Load.SYSTEM;
+            } else if ("queue".equals(name.trim())) {
+                if (!this.bulkhead.isEnabled()) {
+                    throw new ServletException(
+                        Logger.format(
+                            "'%s' filter parameter is required for '%s'",
+                            XsltFilter.THREADS, name
+                        )
+                    );
+                }
+                load = this.bulkhead;
+            } else {
+                load = XsltFilter.load(name.trim());
+            }
+            final int low = XsltFilter.param(
+                config, XsltFilter.LOW_LOAD, XsltFilter.LOW_LEVEL
+            );
+            final int high = XsltFilter.param(
+                config, XsltFilter.HIGH_LOAD, XsltFilter.HIGH_LEVEL
+            );
+            if (low > high) {
+                throw new ServletException(
+                    Logger.format(
+                        "'%s' filter parameter is bigger than '%s': %d > %d",
+                        XsltFilter.LOW_LOAD, XsltFilter.HIGH_LOAD, low, high
+                    )
+                );
+            }
+            plc = new Placement(
+                load, low / XsltFilter.PERCENT, high / XsltFilter.PERCENT
+            );
+            this.register(config, "Placement", plc);
+        }
+        return plc;
+    }
+
+    /**
+     * Register MBean in JMX, to be unregistered when the filter
+     * is destroyed.
+     * @param config Filter config
+     * @param type Type of MBean
+     * @param bean The MBean
+     */
+    private void register(final FilterConfig config, final String type,
+        final Object bean) {
         try {
-            stylesheet = this.tfactory.getAssociatedStylesheet(
-                this.source(xml), null, null, null
+            final ObjectName mbean = new ObjectName(
+                String.format(
+                    "com.rexsl.core:type=%s,name=%s", type,
+                    ObjectName.quote(String.valueOf(config.getFilterName()))
+                )
+            );
+            ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(bean, mbean);
+            this.mbeans.add(mbean);
+        } catch (final JMException ex) {
+            Logger.warn(
+                this, "#register(): failed to register %s in JMX: %s",
+                type, ex
             );
+        }
+    }
+
+    /**
+     * Get compiled stylesheet.
+     *
+     * <p>The stylesheet is resolved and compiled only once and then taken
+     * from {@link TemplatesCache}. Its HREF is turned into a path in
+     * servlet context first, if it points to this context (see
+     * {@link #local(HttpServletRequest, String)}).
+     *
+     * @param request The request
+     * @param stylesheet HREF of the stylesheet
+     * @return Compiled stylesheet
+     * @throws ServletException If fails
+     * @checkstyle RedundantThrows (4 lines)
+     */
+    private TemplatesCache.Compiled compiled(
+        final HttpServletRequest request, final String stylesheet)
+        throws ServletException {
+        try {
+            return this.templates.get(XsltFilter.local(request, stylesheet));
         } catch (final TransformerConfigurationException ex) {
             throw new ServletException(
                 Logger.format(
-                    "Failed to configure XSL transformer: '%[text]s'",
-                    xml
+                    "Failed to compile XSL stylesheet '%s'",
+                    stylesheet
                 ),
                 ex
             );
         }
-        if (stylesheet == null) {
-            throw new ServletException(
-                Logger.format(
-                    "No associated stylesheet found at: '%[text]s'",
-                    xml
+    }
+
+    /**
+     * Turn HREF of a stylesheet into its path in servlet context, if it
+     * is an absolute URL of this context.
+     *
+     * <p>For example, {@code http://example.com:80/ctx/xsl/page.xsl?1.0},
+     * which is made by {@link XslResolver} for the request to
+     * {@code http://example.com/ctx/}, is turned into {@code /xsl/page.xsl}.
+     * Thus, it is resolved locally, and not through HTTP, and is found in
+     * cache under the same key as stylesheets compiled by
+     * {@link Precompiler}. Query of the URL is not a part of the path,
+     * it is only used by browsers, to reload stylesheets.
+     *
+     * @param request The request
+     * @param href HREF of the stylesheet
+     * @return Path in servlet context or the HREF as is
+     */
+    private static String local(final HttpServletRequest request,
+        final String href) {
+        String path = href;
+        try {
+            final URI uri = new URI(href);
+            final String ctx = request.getContextPath();
+            if (uri.isAbsolute()
+                && StringUtils.equalsIgnoreCase(
+                    request.getScheme(), uri.getScheme()
                 )
-            );
+                && StringUtils.equalsIgnoreCase(
+                    request.getServerName(), uri.getHost()
+                )
+                && request.getServerPort() == uri.getPort()
+                && uri.getRawPath() != null
+                && uri.getRawPath().startsWith(String.format("%s/", ctx))) {
+                path = uri.getRawPath().substring(ctx.length());
+            }
+        } catch (final URISyntaxException ex) {
+            path = href;
         }
-        Logger.debug(
-            this,
-            "#transform(%d chars): found '%s' associated stylesheet by %s",
-            xml.length(),
-            stylesheet.getSystemId(),
-            this.tfactory.getClass().getName()
-        );
-        return stylesheet;
+        return path;
     }
 
     /**
-     * Make a transformer from this stylesheet.
-     * @param stylesheet The stylesheet
+     * Make a transformer from this compiled stylesheet.
+     *
+     * <p>Transformer is created for every request, since it is not
+     * thread-safe.
+     *
+     * @param tpl Compiled stylesheet
      * @return Transformer
      * @throws ServletException If fails
      * @checkstyle RedundantThrows (3 lines)
      */
-    private Transformer transformer(final Source stylesheet)
+    private Transformer transformer(final Templates tpl)
         throws ServletException {
         final Transformer tran;
         try {
-            tran = this.tfactory.newTransformer(stylesheet);
+            tran = tpl.newTransformer();
         } catch (final TransformerConfigurationException ex) {
             throw new ServletException(
                 Logger.format(
-                    "Failed to create an XSL transformer for '%s'",
-                    stylesheet.getSystemId()
+                    "Failed to create an XSL transformer from %[type]s",
+                    tpl
                 ),
                 ex
             );
@@ -283,13 +1292,202 @@ public final class XsltFilter implements Filter {
         if (tran == null) {
             throw new ServletException(
                 Logger.format(
-                    "%[type]s failed to create new XSL transformer for '%s'",
+                    "%[type]s failed to create new XSL transformer from %s",
                     this.tfactory,
-                    stylesheet.getSystemId()
+                    tpl
                 )
             );
         }
         return tran;
     }
 
+    /**
+     * Send buffered response to the client, as is.
+     * @param request The request
+     * @param response The response
+     * @param wrapper The response wrapper with buffered page
+     * @throws IOException If something goes wrong
+     */
+    private static void raw(final HttpServletRequest request,
+        final HttpServletResponse response,
+        final ByteArrayResponseWrapper wrapper) throws IOException {
+        final int size = wrapper.size();
+        if (size > 0) {
+            response.setContentLength(size);
+        } else if (wrapper.getContentLength() >= 0) {
+            response.setContentLength(wrapper.getContentLength());
+        }
+        if (!XsltFilter.head(request)) {
+            wrapper.writeTo(response.getOutputStream());
+        }
+    }
+
+    /**
+     * Make suffix of entity tag, specific for content coding.
+     * @param tag Tag of the stylesheet or of the representation
+     * @param coding Content coding
+     * @return Suffix
+     */
+    private static String suffix(final String tag, final String coding) {
+        final String suffix;
+        if (Compression.IDENTITY.equals(coding)) {
+            suffix = tag;
+        } else {
+            suffix = String.format("%s-%s", tag, coding);
+        }
+        return suffix;
+    }
+
+    /**
+     * Set entity tag of a successful response and check whether the client
+     * already has it.
+     * @param request The request
+     * @param response The response
+     * @param wrapper The response wrapper with buffered page
+     * @param suffix Tag of the stylesheet or of the representation
+     * @return TRUE if the client has it and {@code 304} is returned
+     */
+    private static boolean fresh(final HttpServletRequest request,
+        final HttpServletResponse response,
+        final ByteArrayResponseWrapper wrapper, final String suffix) {
+        final String match = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        boolean fresh = false;
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK
+            && wrapper.size() > 0
+            && !response.containsHeader(HttpHeaders.ETAG)) {
+            final String etag = XsltFilter.etag(wrapper, suffix);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            fresh = match != null && XsltFilter.matches(match, etag);
+        }
+        if (fresh) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return fresh;
+    }
+
+    /**
+     * Does this entity tag match the value of {@code If-None-Match} header?
+     * @param match Value of the header
+     * @param etag Entity tag
+     * @return TRUE if it matches
+     */
+    private static boolean matches(final String match, final String etag) {
+        boolean fresh = false;
+        for (final String tag : match.split(",")) {
+            final String trimmed = tag.trim();
+            if ("*".equals(trimmed) || etag.equals(trimmed)) {
+                fresh = true;
+                break;
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Make strong entity tag of the buffered page.
+     * @param wrapper The response wrapper with XML page
+     * @param suffix Tag of the stylesheet or of the representation
+     * @return Entity tag, quoted
+     */
+    private static String etag(final ByteArrayResponseWrapper wrapper,
+        final String suffix) {
+        return String.format(
+            "\"%s-%s\"", Hex.encodeHexString(wrapper.digest()), suffix
+        );
+    }
+
+    /**
+     * Is it a HEAD request?
+     * @param request The request
+     * @return TRUE if it's HEAD
+     */
+    private static boolean head(final HttpServletRequest request) {
+        return "HEAD".equals(request.getMethod());
+    }
+
+    /**
+     * Make a load signal by the name of its class.
+     * @param name Name of the class
+     * @return Load signal
+     * @throws ServletException If fails to instantiate it
+     * @checkstyle RedundantThrows (3 lines)
+     */
+    private static Load load(final String name) throws ServletException {
+        try {
+            return Class.forName(name).asSubclass(Load.class).newInstance();
+        } catch (final ClassNotFoundException ex) {
+            throw new ServletException(ex);
+        } catch (final ClassCastException ex) {
+            throw new ServletException(ex);
+        } catch (final InstantiationException ex) {
+            throw new ServletException(ex);
+        } catch (final IllegalAccessException ex) {
+            throw new ServletException(ex);
+        }
+    }
+
+    /**
+     * Load the table of browsers capable of XSLT.
+     * @param config Filter config
+     * @return Table
+     * @throws ServletException If fails to load
+     * @checkstyle RedundantThrows (3 lines)
+     */
+    private static XsltCapabilities capabilities(final FilterConfig config)
+        throws ServletException {
+        final String path = config.getInitParameter(XsltFilter.CAPABILITIES);
+        final XsltCapabilities table;
+        if (path == null) {
+            table = XsltCapabilities.DEFAULT;
+        } else {
+            final InputStream stream = config.getServletContext()
+                .getResourceAsStream(path.trim());
+            if (stream == null) {
+                throw new ServletException(
+                    Logger.format(
+                        "'%s' filter parameter points to absent '%s'",
+                        XsltFilter.CAPABILITIES, path
+                    )
+                );
+            }
+            try {
+                table = XsltCapabilities.load(stream);
+            } catch (final IOException ex) {
+                throw new ServletException(ex);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Read integer init parameter of the filter.
+     * @param config Filter config
+     * @param name Name of the parameter
+     * @param def Default value, if the parameter is absent
+     * @return Value of the parameter
+     * @throws ServletException If the value is not a number
+     * @checkstyle RedundantThrows (3 lines)
+     */
+    private static int param(final FilterConfig config, final String name,
+        final int def) throws ServletException {
+        final String value = config.getInitParameter(name);
+        final int num;
+        if (value == null) {
+            num = def;
+        } else {
+            try {
+                num = Integer.parseInt(value.trim());
+            } catch (final NumberFormatException ex) {
+                throw new ServletException(
+                    Logger.format(
+                        "'%s' filter parameter is not a number: '%s'",
+                        name, value
+                    ),
+                    ex
+                );
+            }
+        }
+        return num;
+    }
+
 }
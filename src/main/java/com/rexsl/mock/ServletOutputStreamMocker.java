@@ -94,9 +94,7 @@ public final class ServletOutputStreamMocker {
                         final int off = (Integer) invocation.getArguments()[1];
                         final int len = (Integer) invocation.getArguments()[2];
                         ServletOutputStreamMocker.this.buffer.append(
-                            new String(data, CharEncoding.UTF_8).toCharArray(),
-                            off,
-                            len
+                            new String(data, off, len, CharEncoding.UTF_8)
                         );
                         return null;
                     }
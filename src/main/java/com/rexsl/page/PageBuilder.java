@@ -37,6 +37,8 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javassist.CannotCompileException;
 import javassist.ClassClassPath;
 import javassist.ClassPool;
@@ -50,6 +52,7 @@ import javassist.bytecode.annotation.StringMemberValue;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.core.UriBuilder;
 import javax.xml.bind.annotation.XmlType;
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 /**
@@ -119,6 +122,12 @@ public final class PageBuilder {
     @SuppressWarnings("PMD.DefaultPackage")
     static final ClassPool POOL = ClassPool.getDefault();
 
+    /**
+     * Generated classes, by their parents, stylesheets and schemas.
+     */
+    private static final ConcurrentMap<PageBuilder.Key, Class<?>> CLASSES =
+        new ConcurrentHashMap<PageBuilder.Key, Class<?>>(0);
+
     /**
      * Stylesheet to use.
      */
@@ -184,47 +193,89 @@ public final class PageBuilder {
     /**
      * Create and return a new class for the given stylesheet, or find an
      * existing one and return it.
+     *
+     * <p>Classes already generated are found in {@link #CLASSES}, without
+     * any locking. Only new classes are generated under the lock, since
+     * Javassist class pool is not thread-safe.
+     *
      * @param base Parent class, which will be inherited
      * @return The class just created or found
      */
     private Class<?> createOrFind(final Class<?> base) {
-        synchronized (PageBuilder.class) {
-            final String name = String.format(
-                "%s$%s",
-                base.getName(),
-                this.xsl.getPath().replaceAll("[^a-zA-Z0-9]", "")
-            );
-            final Class<?> cls;
-            if (PageBuilder.POOL.getOrNull(name) == null) {
-                cls = this.construct(name, base);
-            } else {
-                try {
-                    cls = PageBuilder.POOL.getClassLoader().loadClass(name);
-                } catch (final ClassNotFoundException ex) {
-                    throw new IllegalStateException(ex);
-                }
-                final Stylesheet sheet = cls.getAnnotation(Stylesheet.class);
-                if (sheet == null) {
-                    throw new IllegalStateException(
-                        String.format(
-                            "Class %s doesn't have Stylesheet annotation",
-                            cls.getName()
-                        )
-                    );
-                }
-                if (!sheet.value().equals(this.xsl.toString())) {
-                    throw new IllegalStateException(
-                        String.format(
-                            "Class %s has '%s' stylesheet while %s expected",
-                            cls.getName(),
-                            sheet.value(),
-                            this.xsl.toString()
-                        )
-                    );
+        final PageBuilder.Key key = new PageBuilder.Key(
+            base, this.xsl.toString(), this.xsd
+        );
+        Class<?> cls = PageBuilder.CLASSES.get(key);
+        if (cls == null) {
+            synchronized (PageBuilder.class) {
+                cls = PageBuilder.CLASSES.get(key);
+                if (cls == null) {
+                    cls = this.createOrLoad(base);
+                    PageBuilder.CLASSES.put(key, cls);
                 }
             }
-            return cls;
         }
+        return cls;
+    }
+
+    /**
+     * Create a new class for the given stylesheet and schema, or load it
+     * if it's in the class pool already (must be called under the lock).
+     *
+     * <p>The name of the class is made of the names of the parent class,
+     * the stylesheet and the schema (if it's not empty), since
+     * classes with the same stylesheet and different schemas are different.
+     *
+     * @param base Parent class, which will be inherited
+     * @return The class just created or loaded
+     */
+    private Class<?> createOrLoad(final Class<?> base) {
+        final StringBuilder text = new StringBuilder(base.getName())
+            .append('$')
+            .append(PageBuilder.clean(this.xsl.getPath()));
+        if (!this.xsd.isEmpty()) {
+            text.append('$').append(PageBuilder.clean(this.xsd));
+        }
+        final String name = text.toString();
+        final Class<?> cls;
+        if (PageBuilder.POOL.getOrNull(name) == null) {
+            cls = this.construct(name, base);
+        } else {
+            try {
+                cls = PageBuilder.POOL.getClassLoader().loadClass(name);
+            } catch (final ClassNotFoundException ex) {
+                throw new IllegalStateException(ex);
+            }
+            final Stylesheet sheet = cls.getAnnotation(Stylesheet.class);
+            if (sheet == null) {
+                throw new IllegalStateException(
+                    String.format(
+                        "Class %s doesn't have Stylesheet annotation",
+                        cls.getName()
+                    )
+                );
+            }
+            if (!sheet.value().equals(this.xsl.toString())) {
+                throw new IllegalStateException(
+                    String.format(
+                        "Class %s has '%s' stylesheet while %s expected",
+                        cls.getName(),
+                        sheet.value(),
+                        this.xsl.toString()
+                    )
+                );
+            }
+        }
+        return cls;
+    }
+
+    /**
+     * Remove all characters from the text, which can't be in a class name.
+     * @param text The text, a path of stylesheet or a name of schema
+     * @return Letters and digits of it
+     */
+    private static String clean(final String text) {
+        return text.replaceAll("[^a-zA-Z0-9]", "");
     }
 
     /**
@@ -296,6 +347,36 @@ public final class PageBuilder {
         return result;
     }
 
+    /**
+     * Key of a generated class.
+     */
+    @EqualsAndHashCode(of = { "base", "stylesheet", "schema" })
+    private static final class Key {
+        /**
+         * Parent class.
+         */
+        private final transient Class<?> base;
+        /**
+         * Stylesheet.
+         */
+        private final transient String stylesheet;
+        /**
+         * Schema.
+         */
+        private final transient String schema;
+        /**
+         * Public ctor.
+         * @param cls Parent class
+         * @param xsl Stylesheet
+         * @param xsd Schema
+         */
+        Key(final Class<?> cls, final String xsl, final String xsd) {
+            this.base = cls;
+            this.stylesheet = xsl;
+            this.schema = xsd;
+        }
+    }
+
     /**
      * Annotations maker.
      */
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Bulkhead}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class BulkheadTest {
+
+    /**
+     * Bulkhead can reject when all permits are taken and the queue is full.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void rejectsWhenSaturated() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead(1, 0);
+        MatcherAssert.assertThat(bulkhead.enter(), Matchers.is(true));
+        MatcherAssert.assertThat(bulkhead.enter(), Matchers.is(false));
+        bulkhead.leave();
+        MatcherAssert.assertThat(bulkhead.enter(), Matchers.is(true));
+        MatcherAssert.assertThat(bulkhead.rejected(), Matchers.equalTo(1L));
+    }
+
+    /**
+     * Bulkhead can let requests wait for their turn in the queue.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void letsRequestsWaitInQueue() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead(1, 1);
+        MatcherAssert.assertThat(bulkhead.enter(), Matchers.is(true));
+        final Thread thread = new Thread(
+            new Runnable() {
+                @Override
+                public void run() {
+                    if (bulkhead.enter()) {
+                        bulkhead.leave();
+                    }
+                }
+            }
+        );
+        thread.start();
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+        MatcherAssert.assertThat(bulkhead.enter(), Matchers.is(false));
+        bulkhead.leave();
+        thread.join();
+        MatcherAssert.assertThat(bulkhead.rejected(), Matchers.equalTo(1L));
+    }
+
+    /**
+     * Bulkhead can permit everything when disabled.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void permitsEverythingWhenDisabled() throws Exception {
+        final Bulkhead bulkhead = new Bulkhead(0, 0);
+        MatcherAssert.assertThat(bulkhead.enter(), Matchers.is(true));
+        MatcherAssert.assertThat(bulkhead.enter(), Matchers.is(true));
+        MatcherAssert.assertThat(bulkhead.rejected(), Matchers.equalTo(0L));
+    }
+
+}
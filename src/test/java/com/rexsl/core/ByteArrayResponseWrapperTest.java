@@ -29,7 +29,11 @@
  */
 package com.rexsl.core;
 
+import com.jcabi.aspects.Tv;
+import java.io.ByteArrayOutputStream;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.CharEncoding;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
@@ -62,4 +66,77 @@ public final class ByteArrayResponseWrapperTest {
         );
     }
 
+    /**
+     * ByteArrayResponseWrapper can read the content back as a stream.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void readsContentAsStream() throws Exception {
+        final ByteArrayResponseWrapper wrapper =
+            new ByteArrayResponseWrapper(
+                Mockito.mock(HttpServletResponse.class)
+            );
+        final String text = "<page>\u0443\u0440\u0430</page>";
+        wrapper.getWriter().print(text);
+        MatcherAssert.assertThat(
+            IOUtils.toString(wrapper.getInputStream(), CharEncoding.UTF_8),
+            Matchers.equalTo(text)
+        );
+        MatcherAssert.assertThat(wrapper.getText(), Matchers.equalTo(text));
+    }
+
+    /**
+     * ByteArrayResponseWrapper can stream non-XML content directly.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void streamsNonXmlContentDirectly() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final HttpServletResponse response =
+            Mockito.mock(HttpServletResponse.class);
+        Mockito.doReturn(
+            new ServletOutputStream() {
+                @Override
+                public void write(final int data) {
+                    output.write(data);
+                }
+            }
+        ).when(response).getOutputStream();
+        final ByteArrayResponseWrapper wrapper =
+            new ByteArrayResponseWrapper(response);
+        wrapper.getOutputStream().write(new byte[] {1, 2});
+        MatcherAssert.assertThat(wrapper.isDirect(), Matchers.is(false));
+        wrapper.setContentType("image/png");
+        wrapper.setContentLength(Tv.THREE);
+        wrapper.getOutputStream().write(Tv.THREE);
+        MatcherAssert.assertThat(wrapper.isDirect(), Matchers.is(true));
+        MatcherAssert.assertThat(
+            output.toByteArray(),
+            Matchers.equalTo(new byte[] {1, 2, Tv.THREE})
+        );
+        Mockito.verify(response).setContentLength(Tv.THREE);
+    }
+
+    /**
+     * ByteArrayResponseWrapper can keep buffering XML content.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void buffersXmlContent() throws Exception {
+        final HttpServletResponse response =
+            Mockito.mock(HttpServletResponse.class);
+        final ByteArrayResponseWrapper wrapper =
+            new ByteArrayResponseWrapper(response);
+        wrapper.setHeader("Content-Type", "application/xml; charset=UTF-8");
+        wrapper.setHeader("Content-Length", "7");
+        wrapper.getWriter().print("<a/>");
+        MatcherAssert.assertThat(wrapper.isDirect(), Matchers.is(false));
+        MatcherAssert.assertThat(
+            wrapper.getContentLength(), Matchers.is(Tv.SEVEN)
+        );
+        MatcherAssert.assertThat(wrapper.getText(), Matchers.equalTo("<a/>"));
+        Mockito.verify(response, Mockito.never())
+            .setHeader(Mockito.eq("Content-Length"), Mockito.anyString());
+    }
+
 }
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link ChunkedBuffer}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class ChunkedBufferTest {
+
+    /**
+     * ChunkedBuffer can keep bytes across many segments.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void keepsBytesAcrossSegments() throws Exception {
+        final byte[] data = new byte[50000];
+        new Random().nextBytes(data);
+        final ChunkedBuffer buffer = new ChunkedBuffer();
+        buffer.write(data[0]);
+        buffer.write(data, 1, 20000);
+        buffer.write(data, 20001, data.length - 20001);
+        MatcherAssert.assertThat(buffer.size(), Matchers.equalTo(data.length));
+        MatcherAssert.assertThat(buffer.toByteArray(), Matchers.equalTo(data));
+        MatcherAssert.assertThat(
+            IOUtils.toByteArray(buffer.toInputStream()),
+            Matchers.equalTo(data)
+        );
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        buffer.writeTo(output);
+        MatcherAssert.assertThat(output.toByteArray(), Matchers.equalTo(data));
+        buffer.release();
+    }
+
+    /**
+     * ChunkedBuffer can reuse released segments.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void reusesReleasedSegments() throws Exception {
+        final ChunkedBuffer first = new ChunkedBuffer();
+        first.write(new byte[] {1, 2, 3}, 0, 3);
+        first.release();
+        final ChunkedBuffer second = new ChunkedBuffer();
+        second.write(new byte[] {4}, 0, 1);
+        MatcherAssert.assertThat(
+            second.toByteArray(),
+            Matchers.equalTo(new byte[] {4})
+        );
+        second.release();
+    }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import javax.ws.rs.core.MediaType;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link ClientCache}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class ClientCacheTest {
+
+    /**
+     * ClientCache can parse headers only once.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void parsesHeadersOnlyOnce() throws Exception {
+        final ClientCache cache = new ClientCache(2);
+        final Client first = cache.get("Chrome/10", MediaType.TEXT_HTML);
+        MatcherAssert.assertThat(
+            cache.get("Chrome/10", MediaType.TEXT_HTML),
+            Matchers.sameInstance(first)
+        );
+        MatcherAssert.assertThat(
+            cache.get(null, null).needsHtml(), Matchers.is(true)
+        );
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(2L));
+    }
+
+    /**
+     * ClientCache can evict least recently used clients.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void evictsLeastRecentlyUsedClients() throws Exception {
+        final ClientCache cache = new ClientCache(2);
+        final Client first = cache.get("Chrome/10", null);
+        cache.get("Safari/5", null);
+        cache.get("Chrome/10", null);
+        cache.get("Firefox/4", null);
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(
+            cache.get("Chrome/10", null), Matchers.sameInstance(first)
+        );
+        cache.get("Safari/5", null);
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(4L));
+    }
+
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Compression}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class CompressionTest {
+
+    /**
+     * Compression can choose content coding.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void negotiatesContentCoding() throws Exception {
+        final Compression compression = new Compression(1);
+        MatcherAssert.assertThat(
+            compression.negotiate("deflate, gzip;q=0.5"),
+            Matchers.equalTo(Compression.GZIP)
+        );
+        MatcherAssert.assertThat(
+            compression.negotiate("gzip;q=0, deflate"),
+            Matchers.equalTo(Compression.DEFLATE)
+        );
+        MatcherAssert.assertThat(
+            compression.negotiate("br"),
+            Matchers.equalTo(Compression.IDENTITY)
+        );
+        MatcherAssert.assertThat(
+            new Compression(0).negotiate(Compression.GZIP),
+            Matchers.equalTo(Compression.IDENTITY)
+        );
+    }
+
+    /**
+     * Compression can give explicit codings precedence over the wildcard
+     * and respect refused identity.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void respectsExplicitCodingsAndRefusedIdentity() throws Exception {
+        final Compression compression = new Compression(1);
+        MatcherAssert.assertThat(
+            compression.negotiate("*;q=1, gzip;q=0"),
+            Matchers.equalTo(Compression.DEFLATE)
+        );
+        MatcherAssert.assertThat(
+            compression.negotiate("gzip;q=0, *"),
+            Matchers.equalTo(Compression.DEFLATE)
+        );
+        MatcherAssert.assertThat(
+            compression.negotiate("*;q=0, identity"),
+            Matchers.equalTo(Compression.IDENTITY)
+        );
+        MatcherAssert.assertThat(
+            compression.negotiate("identity;q=0"),
+            Matchers.equalTo(Compression.GZIP)
+        );
+        MatcherAssert.assertThat(
+            compression.negotiate("identity;q=0, gzip;q=0"),
+            Matchers.equalTo(Compression.DEFLATE)
+        );
+    }
+
+    /**
+     * Compression can compress with gzip, reusing deflaters.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void compressesWithGzip() throws Exception {
+        final Compression compression = new Compression(2);
+        final String text = "<html>\u0443\u0440\u0430</html>";
+        for (int idx = 0; idx < 2; ++idx) {
+            MatcherAssert.assertThat(
+                IOUtils.toString(
+                    new GZIPInputStream(
+                        new ByteArrayInputStream(
+                            compression.compress(
+                                Compression.GZIP,
+                                text.getBytes(CharEncoding.UTF_8)
+                            )
+                        )
+                    ),
+                    CharEncoding.UTF_8
+                ),
+                Matchers.equalTo(text)
+            );
+        }
+    }
+
+    /**
+     * Compression can compress with deflate.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void compressesWithDeflate() throws Exception {
+        final String text = "<page>\u0443\u0440\u0430</page>";
+        MatcherAssert.assertThat(
+            IOUtils.toString(
+                new InflaterInputStream(
+                    new ByteArrayInputStream(
+                        new Compression(2).compress(
+                            Compression.DEFLATE,
+                            text.getBytes(CharEncoding.UTF_8)
+                        )
+                    )
+                ),
+                CharEncoding.UTF_8
+            ),
+            Matchers.equalTo(text)
+        );
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.File;
+import java.util.Arrays;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link IndexProcessor}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class IndexProcessorTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * IndexProcessor can generate indexes of JAXB and JAX-RS classes.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void generatesIndexes() throws Exception {
+        final File src = this.temp.newFolder();
+        final File out = this.temp.newFolder();
+        final File page = new File(src, "foo/Page.java");
+        FileUtils.writeStringToFile(
+            page,
+            // @checkstyle LineLength (1 line)
+            "package foo; @javax.xml.bind.annotation.XmlRootElement public class Page { @javax.xml.bind.annotation.XmlRootElement public static class Inner { } }"
+        );
+        final File front = new File(src, "foo/Front.java");
+        FileUtils.writeStringToFile(
+            front,
+            "package foo; @javax.ws.rs.Path(\"/\") public class Front { }"
+        );
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        MatcherAssert.assertThat(
+            compiler.getTask(
+                null, null, null,
+                Arrays.asList(
+                    "-proc:only",
+                    "-processor", IndexProcessor.class.getName(),
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-d", out.getPath()
+                ),
+                null,
+                compiler.getStandardFileManager(null, null, null)
+                    .getJavaFileObjects(page, front)
+            ).call(),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            FileUtils.readLines(new File(out, "foo/jaxb.index")),
+            Matchers.hasItems("Page", "Page.Inner")
+        );
+        MatcherAssert.assertThat(
+            FileUtils.readLines(new File(out, "foo/jaxrs.index")),
+            Matchers.hasItem("Front")
+        );
+    }
+
+}
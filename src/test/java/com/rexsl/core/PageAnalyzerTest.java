@@ -31,10 +31,12 @@ package com.rexsl.core;
 
 import com.jcabi.log.Logger;
 import com.rexsl.mock.HttpServletRequestMocker;
+import java.io.ByteArrayInputStream;
 import java.util.Arrays;
 import java.util.Collection;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import org.apache.commons.lang3.CharEncoding;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.Matchers;
 import org.junit.Test;
@@ -109,6 +111,8 @@ public final class PageAnalyzerTest {
                 {"", "Mozilla/5.0 Version/5.1.1 Safari/534.51.22", MediaType.TEXT_HTML, false},
                 {"\u0443\u0440\u0430", "Safari/4", MediaType.TEXT_HTML, false},
                 {"<stylesheet xmlns='http://www.w3.org/1999/XSL/Transform'></stylesheet>", "Safari/5", MediaType.TEXT_HTML, false},
+                {"<?xml-stylesheet href='/foo.xsl' type='text/xsl'?><page/>", null, null, false},
+                {"<?xml version='1.0'?><page><?xml-stylesheet href='/a.xsl'?></page>", null, null, false},
             }
         );
     }
@@ -127,7 +131,14 @@ public final class PageAnalyzerTest {
             mocker.withHeader(HttpHeaders.ACCEPT, this.accept);
         }
         MatcherAssert.assertThat(
-            new PageAnalyzer(this.page, mocker.mock()).needsTransformation(),
+            new PageAnalyzer(
+                new Prolog(
+                    new ByteArrayInputStream(
+                        this.page.getBytes(CharEncoding.UTF_8)
+                    )
+                ),
+                mocker.mock()
+            ).needsTransformation(),
             Matchers.describedAs(
                 Logger.format(
                     "'%s' with '%s' by '%s'",
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Placement}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class PlacementTest {
+
+    /**
+     * Placement can switch between server and client with hysteresis.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void switchesWithHysteresis() throws Exception {
+        final AtomicReference<Double> level = new AtomicReference<Double>(0.0d);
+        final Placement placement = new Placement(
+            new Load() {
+                @Override
+                public double level() {
+                    return level.get();
+                }
+            },
+            0.5d, 0.8d
+        );
+        MatcherAssert.assertThat(placement.offloads(), Matchers.is(false));
+        level.set(0.9d);
+        PlacementTest.pause();
+        MatcherAssert.assertThat(placement.offloads(), Matchers.is(true));
+        level.set(0.6d);
+        PlacementTest.pause();
+        MatcherAssert.assertThat(placement.offloads(), Matchers.is(true));
+        level.set(0.4d);
+        PlacementTest.pause();
+        MatcherAssert.assertThat(placement.offloads(), Matchers.is(false));
+        MatcherAssert.assertThat(placement.getSwitches(), Matchers.equalTo(2L));
+        MatcherAssert.assertThat(
+            placement.getMode(), Matchers.equalTo("server")
+        );
+    }
+
+    /**
+     * Placement can always offload without a load signal.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void alwaysOffloadsWithoutLoad() throws Exception {
+        MatcherAssert.assertThat(
+            new Placement().offloads(), Matchers.is(true)
+        );
+    }
+
+    /**
+     * Wait until the load may be checked again.
+     * @throws InterruptedException If interrupted
+     */
+    private static void pause() throws InterruptedException {
+        Thread.sleep(1100L);
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import javax.xml.bind.Marshaller;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link PooledMarshaller}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class PooledMarshallerTest {
+
+    /**
+     * PooledMarshaller can return marshaller to the pool after use.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void returnsMarshallerToPool() throws Exception {
+        final Marshaller origin = Mockito.mock(Marshaller.class);
+        final Queue<Marshaller> pool = new ArrayBlockingQueue<Marshaller>(1);
+        pool.add(origin);
+        final Marshaller mrsh = new PooledMarshaller(
+            pool, PooledMarshallerTest.factory()
+        );
+        MatcherAssert.assertThat(pool, Matchers.empty());
+        final Object page = new Object();
+        final Writer writer = new StringWriter();
+        mrsh.marshal(page, writer);
+        Mockito.verify(origin).marshal(page, writer);
+        MatcherAssert.assertThat(pool, Matchers.contains(origin));
+        mrsh.marshal(page, writer);
+        Mockito.verify(origin, Mockito.times(2)).marshal(page, writer);
+        MatcherAssert.assertThat(pool, Matchers.contains(origin));
+    }
+
+    /**
+     * PooledMarshaller can keep re-configured marshaller to itself.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void keepsReconfiguredMarshaller() throws Exception {
+        final Marshaller origin = Mockito.mock(Marshaller.class);
+        final Queue<Marshaller> pool = new ArrayBlockingQueue<Marshaller>(1);
+        pool.add(origin);
+        final Marshaller mrsh = new PooledMarshaller(
+            pool, PooledMarshallerTest.factory()
+        );
+        mrsh.setProperty(Marshaller.JAXB_ENCODING, "UTF-16");
+        mrsh.marshal(new Object(), new StringWriter());
+        MatcherAssert.assertThat(pool, Matchers.empty());
+    }
+
+    /**
+     * PooledMarshaller can set header of the response to pooled marshaller
+     * and return it to the pool.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void setsHeaderToPooledMarshaller() throws Exception {
+        final Marshaller origin = Mockito.mock(Marshaller.class);
+        final Queue<Marshaller> pool = new ArrayBlockingQueue<Marshaller>(1);
+        pool.add(origin);
+        final String header = "<?xml-stylesheet href='a.xsl'?>";
+        final Marshaller mrsh = new PooledMarshaller(
+            pool, PooledMarshallerTest.factory(), null, header
+        );
+        mrsh.marshal(new Object(), new StringWriter());
+        Mockito.verify(origin).setProperty(PooledMarshaller.HEADERS, header);
+        MatcherAssert.assertThat(pool, Matchers.contains(origin));
+    }
+
+    /**
+     * PooledMarshaller can skip the header, which the pooled marshaller
+     * has already.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void skipsHeaderSetAlready() throws Exception {
+        final Marshaller origin = Mockito.mock(Marshaller.class);
+        final String header = "<?xml-stylesheet href='b.xsl'?>";
+        Mockito.doReturn(header).when(origin)
+            .getProperty(PooledMarshaller.HEADERS);
+        final Queue<Marshaller> pool = new ArrayBlockingQueue<Marshaller>(1);
+        pool.add(origin);
+        new PooledMarshaller(
+            pool, PooledMarshallerTest.factory(), null, header
+        ).marshal(new Object(), new StringWriter());
+        Mockito.verify(origin, Mockito.never()).setProperty(
+            Mockito.eq(PooledMarshaller.HEADERS), Mockito.anyObject()
+        );
+    }
+
+    /**
+     * Make a factory, which must not be called.
+     * @return Factory
+     */
+    private static Callable<Marshaller> factory() {
+        return new Callable<Marshaller>() {
+            @Override
+            public Marshaller call() {
+                throw new UnsupportedOperationException("pool is empty");
+            }
+        };
+    }
+
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.xml.transform.TransformerFactory;
+import org.apache.commons.io.IOUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link Precompiler}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class PrecompilerTest {
+
+    /**
+     * Simple stylesheet.
+     */
+    private static final String XSL =
+        // @checkstyle LineLength (1 line)
+        "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'><xsl:template match='/'><p/></xsl:template></xsl:stylesheet>";
+
+    /**
+     * Precompiler can compile all stylesheets in folders.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void compilesAllStylesheetsInFolders() throws Exception {
+        final ServletContext ctx = Mockito.mock(ServletContext.class);
+        PrecompilerTest.folder(ctx, "/xsl/", "/xsl/a.xsl", "/xsl/b/", "/x.css");
+        PrecompilerTest.folder(ctx, "/xsl/b/", "/xsl/b/c.xsl");
+        PrecompilerTest.file(ctx, "/xsl/a.xsl", PrecompilerTest.XSL);
+        PrecompilerTest.file(ctx, "/xsl/b/c.xsl", PrecompilerTest.XSL);
+        final TemplatesCache cache = PrecompilerTest.cache(ctx);
+        MatcherAssert.assertThat(
+            new Precompiler(ctx, cache).compile("/xsl/"),
+            Matchers.contains("/xsl/a.xsl", "/xsl/b/c.xsl")
+        );
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(2));
+        cache.get("/xsl/b/c.xsl");
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(1L));
+    }
+
+    /**
+     * Precompiler can fail when a stylesheet is broken.
+     * @throws Exception If something goes wrong
+     */
+    @Test(expected = ServletException.class)
+    public void failsOnBrokenStylesheet() throws Exception {
+        final ServletContext ctx = Mockito.mock(ServletContext.class);
+        PrecompilerTest.folder(ctx, "/xsl/", "/xsl/a.xsl", "/xsl/broken.xsl");
+        PrecompilerTest.file(ctx, "/xsl/a.xsl", PrecompilerTest.XSL);
+        PrecompilerTest.file(ctx, "/xsl/broken.xsl", "<stylesheet");
+        new Precompiler(ctx, PrecompilerTest.cache(ctx)).compile("/xsl/");
+    }
+
+    /**
+     * Make a cache of stylesheets, resolved in servlet context.
+     * @param ctx Servlet context
+     * @return Cache
+     */
+    private static TemplatesCache cache(final ServletContext ctx) {
+        final TransformerFactory factory = TransformerFactory.newInstance();
+        factory.setURIResolver(new ContextResourceResolver(ctx));
+        return new TemplatesCache(factory, 2);
+    }
+
+    /**
+     * Register a folder in servlet context.
+     * @param ctx Servlet context
+     * @param path Path of the folder
+     * @param children Paths of its children
+     */
+    private static void folder(final ServletContext ctx, final String path,
+        final String... children) {
+        Mockito.doReturn(new HashSet<String>(Arrays.asList(children)))
+            .when(ctx).getResourcePaths(path);
+    }
+
+    /**
+     * Register a file in servlet context.
+     * @param ctx Servlet context
+     * @param path Path of the file
+     * @param content Its content
+     */
+    private static void file(final ServletContext ctx, final String path,
+        final String content) {
+        Mockito.doReturn(IOUtils.toInputStream(content))
+            .when(ctx).getResourceAsStream(path);
+    }
+
+}
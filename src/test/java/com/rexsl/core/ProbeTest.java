@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.rexsl.mock.HttpServletRequestMocker;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.HttpHeaders;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link Probe}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class ProbeTest {
+
+    /**
+     * Probe can issue a cookie, which proves capability of the same agent.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void issuesCookieForTheSameAgent() throws Exception {
+        final Probe probe = new Probe("secret");
+        final HttpServletResponse response =
+            Mockito.mock(HttpServletResponse.class);
+        MatcherAssert.assertThat(
+            probe.serve(
+                new HttpServletRequestMocker()
+                    .withRequestUri("/rexsl-probe")
+                    .withHeader(HttpHeaders.USER_AGENT, "Firefox/30")
+                    .mock(),
+                response
+            ),
+            Matchers.is(true)
+        );
+        final ArgumentCaptor<String> header =
+            ArgumentCaptor.forClass(String.class);
+        Mockito.verify(response)
+            .addHeader(Mockito.eq(HttpHeaders.SET_COOKIE), header.capture());
+        MatcherAssert.assertThat(
+            header.getValue(),
+            Matchers.allOf(
+                Matchers.startsWith(String.format("%s=", Probe.COOKIE)),
+                Matchers.containsString("; Path=/;"),
+                Matchers.endsWith("; HttpOnly")
+            )
+        );
+        final Cookie cookie = new Cookie(
+            Probe.COOKIE,
+            header.getValue().substring(
+                Probe.COOKIE.length() + 1, header.getValue().indexOf(';')
+            )
+        );
+        MatcherAssert.assertThat(
+            probe.isProven(ProbeTest.request("Firefox/30", cookie)),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            probe.isProven(ProbeTest.request("Opera/9", cookie)),
+            Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            new Probe("other").isProven(
+                ProbeTest.request("Firefox/30", cookie)
+            ),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Probe can ignore other requests and everything when disabled.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void ignoresOtherRequests() throws Exception {
+        final HttpServletResponse response =
+            Mockito.mock(HttpServletResponse.class);
+        MatcherAssert.assertThat(
+            new Probe("key").serve(
+                new HttpServletRequestMocker().withRequestUri("/a").mock(),
+                response
+            ),
+            Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            new Probe(null).serve(
+                new HttpServletRequestMocker()
+                    .withRequestUri("/rexsl-probe").mock(),
+                response
+            ),
+            Matchers.is(false)
+        );
+        Mockito.verifyZeroInteractions(response);
+    }
+
+    /**
+     * Make a request with a cookie.
+     * @param agent User agent
+     * @param cookie The cookie
+     * @return Request
+     */
+    private static HttpServletRequest request(final String agent,
+        final Cookie cookie) {
+        final HttpServletRequest request = new HttpServletRequestMocker()
+            .withHeader(HttpHeaders.USER_AGENT, agent)
+            .mock();
+        Mockito.doReturn(new Cookie[] {cookie}).when(request).getCookies();
+        return request;
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Profiler}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class ProfilerTest {
+
+    /**
+     * Profiler can sample one of every N transformations.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void samplesOneOfEveryTransformations() throws Exception {
+        final Profiler profiler = new Profiler(2);
+        MatcherAssert.assertThat(profiler.sample(), Matchers.is(false));
+        MatcherAssert.assertThat(profiler.sample(), Matchers.is(true));
+        MatcherAssert.assertThat(profiler.sample(), Matchers.is(false));
+        MatcherAssert.assertThat(profiler.getSamples(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(
+            new Profiler(0).sample(), Matchers.is(false)
+        );
+    }
+
+    /**
+     * Profiler can report the hottest templates first.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void reportsHottestTemplatesFirst() throws Exception {
+        final Profiler profiler = new Profiler(1);
+        profiler.record("/a.xsl:1", 2L, 1L);
+        profiler.record("/b.xsl:2", 9L, 7L);
+        profiler.record("/a.xsl:1", 2L, 1L);
+        MatcherAssert.assertThat(
+            profiler.top(1),
+            Matchers.contains(Matchers.startsWith("/b.xsl:2: 1 call(s)"))
+        );
+        MatcherAssert.assertThat(
+            profiler.getHotTemplates()[1],
+            Matchers.startsWith("/a.xsl:1: 2 call(s)")
+        );
+        profiler.reset();
+        MatcherAssert.assertThat(
+            profiler.getHotTemplates(), Matchers.emptyArray()
+        );
+    }
+
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.ByteArrayInputStream;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link Prolog}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class PrologTest {
+
+    /**
+     * Prolog can find an associated stylesheet.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void findsAssociatedStylesheet() throws Exception {
+        MatcherAssert.assertThat(
+            PrologTest.prolog(
+                // @checkstyle LineLength (1 line)
+                "<?xml version='1.0'?><!-- hey --><?xml-stylesheet type='text/css' href='a.css'?><?xml-stylesheet href='/x.xsl?a=1&amp;b=2' type='text/xsl'?><page/>"
+            ).stylesheet(),
+            Matchers.equalTo("/x.xsl?a=1&b=2")
+        );
+    }
+
+    /**
+     * Prolog can ignore instructions after the root element.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void ignoresInstructionsInsideDocument() throws Exception {
+        MatcherAssert.assertThat(
+            PrologTest.prolog(
+                "<page><?xml-stylesheet href='/a.xsl'?></page>"
+            ).hasStylesheet(),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Prolog can ignore content which is not XML.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void ignoresNonXmlContent() throws Exception {
+        MatcherAssert.assertThat(
+            PrologTest.prolog("\u0443\u0440\u0430 <<").hasStylesheet(),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Prolog can detect XML declaration.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void detectsXmlDeclaration() throws Exception {
+        MatcherAssert.assertThat(
+            PrologTest.prolog("<?xml version='1.0'?><page/>").isDeclared(),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            PrologTest.prolog("<page/>").isDeclared(),
+            Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            PrologTest.prolog("").isDeclared(),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Make a prolog from text.
+     * @param text The document
+     * @return Prolog
+     * @throws Exception If something goes wrong
+     */
+    private static Prolog prolog(final String text) throws Exception {
+        return new Prolog(
+            new ByteArrayInputStream(text.getBytes(CharEncoding.UTF_8))
+        );
+    }
+
+}
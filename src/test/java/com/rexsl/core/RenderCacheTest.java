@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.aspects.Tv;
+import javax.xml.transform.Templates;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link RenderCache}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class RenderCacheTest {
+
+    /**
+     * RenderCache can find a page by stylesheet and digest.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void findsPageByStylesheetAndDigest() throws Exception {
+        final RenderCache cache = new RenderCache(2L);
+        final Templates tpl = Mockito.mock(Templates.class);
+        final byte[] page = {1};
+        cache.put(tpl, new byte[] {2}, Compression.IDENTITY, page);
+        MatcherAssert.assertThat(
+            cache.get(tpl, new byte[] {2}, Compression.IDENTITY),
+            Matchers.sameInstance(page)
+        );
+        MatcherAssert.assertThat(
+            cache.get(
+                Mockito.mock(Templates.class), new byte[] {2},
+                Compression.IDENTITY
+            ),
+            Matchers.nullValue()
+        );
+        MatcherAssert.assertThat(
+            cache.get(tpl, new byte[] {1}, Compression.IDENTITY),
+            Matchers.nullValue()
+        );
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(2L));
+    }
+
+    /**
+     * RenderCache can peek into cache without counting hits and misses.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void peeksWithoutCounting() throws Exception {
+        final RenderCache cache = new RenderCache(2L);
+        final Templates tpl = Mockito.mock(Templates.class);
+        final byte[] page = {1};
+        cache.put(tpl, new byte[] {2}, Compression.IDENTITY, page);
+        MatcherAssert.assertThat(
+            cache.peek(tpl, new byte[] {2}, Compression.IDENTITY),
+            Matchers.sameInstance(page)
+        );
+        MatcherAssert.assertThat(
+            cache.peek(tpl, new byte[] {1}, Compression.IDENTITY),
+            Matchers.nullValue()
+        );
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(0L));
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(0L));
+    }
+
+    /**
+     * RenderCache can evict least recently used pages.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void evictsLeastRecentlyUsedPages() throws Exception {
+        final RenderCache cache = new RenderCache(2L);
+        final Templates tpl = Mockito.mock(Templates.class);
+        final String coding = Compression.IDENTITY;
+        cache.put(tpl, new byte[] {1}, coding, new byte[] {1});
+        cache.put(tpl, new byte[] {2}, coding, new byte[] {2});
+        cache.get(tpl, new byte[] {1}, coding);
+        cache.put(tpl, new byte[] {Tv.THREE}, coding, new byte[] {Tv.THREE});
+        cache.put(tpl, new byte[] {Tv.FOUR}, coding, new byte[Tv.FOUR]);
+        MatcherAssert.assertThat(cache.bytes(), Matchers.equalTo(2L));
+        MatcherAssert.assertThat(
+            cache.get(tpl, new byte[] {1}, coding),
+            Matchers.notNullValue()
+        );
+        MatcherAssert.assertThat(
+            cache.get(tpl, new byte[] {2}, coding),
+            Matchers.nullValue()
+        );
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.File;
+import javax.xml.validation.Schema;
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test case for {@link SchemaCache}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class SchemaCacheTest {
+
+    /**
+     * XSD with one element.
+     */
+    private static final String XSD =
+        // @checkstyle LineLength (1 line)
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'><xs:element name='page' type='xs:string'/></xs:schema>";
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * SchemaCache can compile a schema only once.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void compilesSchemaOnlyOnce() throws Exception {
+        final File xsd = this.temp.newFile("page.xsd");
+        FileUtils.writeStringToFile(xsd, SchemaCacheTest.XSD);
+        final SchemaCache cache = new SchemaCache();
+        final Schema schema = cache.get(xsd);
+        MatcherAssert.assertThat(
+            cache.get(xsd),
+            Matchers.sameInstance(schema)
+        );
+    }
+
+    /**
+     * SchemaCache can compile a schema again when its file is modified.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void recompilesModifiedSchema() throws Exception {
+        final File xsd = this.temp.newFile("index.xsd");
+        FileUtils.writeStringToFile(xsd, SchemaCacheTest.XSD);
+        final SchemaCache cache = new SchemaCache();
+        final Schema schema = cache.get(xsd);
+        FileUtils.writeStringToFile(
+            xsd, SchemaCacheTest.XSD.replace("page", "index")
+        );
+        xsd.setLastModified(xsd.lastModified() + 2000L);
+        MatcherAssert.assertThat(
+            cache.get(xsd),
+            Matchers.not(Matchers.sameInstance(schema))
+        );
+    }
+
+    /**
+     * SchemaCache can compile a schema again when a file it includes
+     * is modified.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void recompilesSchemaWithModifiedInclude() throws Exception {
+        final File inc = this.temp.newFile("inc.xsd");
+        FileUtils.writeStringToFile(inc, SchemaCacheTest.XSD);
+        final File xsd = this.temp.newFile("main.xsd");
+        FileUtils.writeStringToFile(
+            xsd,
+            // @checkstyle LineLength (1 line)
+            "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'><xs:include schemaLocation='inc.xsd'/></xs:schema>"
+        );
+        final SchemaCache cache = new SchemaCache();
+        final Schema schema = cache.get(xsd);
+        MatcherAssert.assertThat(
+            cache.get(xsd),
+            Matchers.sameInstance(schema)
+        );
+        FileUtils.writeStringToFile(
+            inc, SchemaCacheTest.XSD.replace("page", "index")
+        );
+        inc.setLastModified(inc.lastModified() + 2000L);
+        MatcherAssert.assertThat(
+            cache.get(xsd),
+            Matchers.not(Matchers.sameInstance(schema))
+        );
+    }
+
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import javax.servlet.ServletContext;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.URIResolver;
+import javax.xml.transform.stream.StreamSource;
+import org.apache.commons.io.FileUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Test case for {@link StylesheetWatch}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class StylesheetWatchTest {
+
+    /**
+     * Temporary folder.
+     * @checkstyle VisibilityModifier (3 lines)
+     */
+    @Rule
+    public transient TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * StylesheetWatch can invalidate only dependent stylesheets.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void invalidatesOnlyDependentStylesheets() throws Exception {
+        final File dir = this.temp.newFolder();
+        final String simple =
+            // @checkstyle LineLength (1 line)
+            "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'><xsl:template match='/'><p/></xsl:template></xsl:stylesheet>";
+        final File layout = new File(dir, "layout.xsl");
+        FileUtils.writeStringToFile(layout, simple);
+        FileUtils.writeStringToFile(new File(dir, "other.xsl"), simple);
+        FileUtils.writeStringToFile(
+            new File(dir, "index.xsl"),
+            // @checkstyle LineLength (1 line)
+            "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'><xsl:import href='/layout.xsl'/></xsl:stylesheet>"
+        );
+        final ServletContext ctx = Mockito.mock(ServletContext.class);
+        Mockito.doReturn("").when(ctx).getContextPath();
+        Mockito.doAnswer(
+            new Answer<String>() {
+                @Override
+                public String answer(final InvocationOnMock invocation) {
+                    return new File(
+                        dir, invocation.getArguments()[0].toString()
+                    ).getPath();
+                }
+            }
+        ).when(ctx).getRealPath(Mockito.anyString());
+        final StylesheetWatch watch = new StylesheetWatch(
+            ctx,
+            new URIResolver() {
+                @Override
+                public Source resolve(final String href, final String base) {
+                    try {
+                        return new StreamSource(
+                            new StringReader(
+                                FileUtils.readFileToString(new File(dir, href))
+                            ),
+                            href
+                        );
+                    } catch (final IOException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            }
+        );
+        final TransformerFactory factory = TransformerFactory.newInstance();
+        factory.setURIResolver(watch);
+        final TemplatesCache cache = new TemplatesCache(factory, 2, watch);
+        cache.get(watch.resolve("/index.xsl", null));
+        cache.get(watch.resolve("/other.xsl", null));
+        MatcherAssert.assertThat(watch.sweep(), Matchers.empty());
+        MatcherAssert.assertThat(
+            layout.setLastModified(layout.lastModified() - 10000L),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            watch.sweep(),
+            Matchers.<String>contains("/index.xsl")
+        );
+        MatcherAssert.assertThat(watch.sweep(), Matchers.empty());
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.StringReader;
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link TemplatesCache}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class TemplatesCacheTest {
+
+    /**
+     * TemplatesCache can compile a stylesheet only once.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void compilesStylesheetOnlyOnce() throws Exception {
+        final TemplatesCache cache = new TemplatesCache(
+            TransformerFactory.newInstance(), 2
+        );
+        final TemplatesCache.Compiled first =
+            cache.get(TemplatesCacheTest.source("/a.xsl"));
+        MatcherAssert.assertThat(
+            cache.get(TemplatesCacheTest.source("/a.xsl")),
+            Matchers.sameInstance(first)
+        );
+        MatcherAssert.assertThat(cache.hits(), Matchers.equalTo(1L));
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(1L));
+    }
+
+    /**
+     * TemplatesCache can evict least recently used stylesheets.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void evictsLeastRecentlyUsedStylesheets() throws Exception {
+        final TemplatesCache cache = new TemplatesCache(
+            TransformerFactory.newInstance(), 2
+        );
+        final TemplatesCache.Compiled first =
+            cache.get(TemplatesCacheTest.source("/a.xsl"));
+        cache.get(TemplatesCacheTest.source("/b.xsl"));
+        cache.get(TemplatesCacheTest.source("/a.xsl"));
+        cache.get(TemplatesCacheTest.source("/c.xsl"));
+        MatcherAssert.assertThat(cache.size(), Matchers.equalTo(2));
+        MatcherAssert.assertThat(
+            cache.get(TemplatesCacheTest.source("/a.xsl")),
+            Matchers.sameInstance(first)
+        );
+        cache.get(TemplatesCacheTest.source("/b.xsl"));
+        MatcherAssert.assertThat(cache.misses(), Matchers.equalTo(4L));
+    }
+
+    /**
+     * TemplatesCache can tag stylesheets by their contents.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void tagsStylesheetsByContent() throws Exception {
+        final TemplatesCache first = new TemplatesCache(
+            TransformerFactory.newInstance(), 2
+        );
+        final TemplatesCache second = new TemplatesCache(
+            TransformerFactory.newInstance(), 2
+        );
+        final String tag = first.get(TemplatesCacheTest.source("/a.xsl"))
+            .tag();
+        MatcherAssert.assertThat(
+            second.get(TemplatesCacheTest.source("/a.xsl")).tag(),
+            Matchers.equalTo(tag)
+        );
+        final Source other = new StreamSource(
+            new StringReader(
+                // @checkstyle LineLength (1 line)
+                "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'><xsl:template match='/'><b/></xsl:template></xsl:stylesheet>"
+            )
+        );
+        other.setSystemId("/a.xsl");
+        final TemplatesCache third = new TemplatesCache(
+            TransformerFactory.newInstance(), 2
+        );
+        MatcherAssert.assertThat(
+            third.get(other).tag(),
+            Matchers.not(Matchers.equalTo(tag))
+        );
+    }
+
+    /**
+     * Make a simple stylesheet source.
+     * @param name System ID of it
+     * @return Source
+     */
+    private static Source source(final String name) {
+        final Source src = new StreamSource(
+            new StringReader(
+                // @checkstyle LineLength (1 line)
+                "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'><xsl:template match='/'><p/></xsl:template></xsl:stylesheet>"
+            )
+        );
+        src.setSystemId(name);
+        return src;
+    }
+
+}
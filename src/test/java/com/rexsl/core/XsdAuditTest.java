@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import java.io.StringReader;
+import javax.xml.XMLConstants;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link XsdAudit}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class XsdAuditTest {
+
+    /**
+     * XsdAudit can sample only some responses.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void samplesOnlySomeResponses() throws Exception {
+        final XsdAudit audit = new XsdAudit(3);
+        final Schema schema = XsdAuditTest.schema();
+        int sampled = 0;
+        // @checkstyle MagicNumber (1 line)
+        for (int idx = 0; idx < 9; ++idx) {
+            if (audit.sample(schema, String.class) != null) {
+                ++sampled;
+            }
+        }
+        MatcherAssert.assertThat(sampled, Matchers.equalTo(2 + 1));
+    }
+
+    /**
+     * XsdAudit can count failures of validation per class.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void countsFailuresPerClass() throws Exception {
+        final XsdAudit audit = new XsdAudit(1);
+        final Schema schema = XsdAuditTest.schema();
+        audit.sample(schema, String.class).check(
+            new StreamSource(new StringReader("<page>hello</page>"))
+        );
+        audit.sample(schema, Integer.class).check(
+            new StreamSource(new StringReader("<index/>"))
+        );
+        audit.close();
+        MatcherAssert.assertThat(audit.getSamples(), Matchers.equalTo(2L));
+        MatcherAssert.assertThat(
+            audit.getFailures(),
+            Matchers.arrayContaining("java.lang.Integer: 1")
+        );
+    }
+
+    /**
+     * Make a schema with one element.
+     * @return Schema
+     * @throws Exception If something goes wrong
+     */
+    private static Schema schema() throws Exception {
+        return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+            .newSchema(
+                new StreamSource(
+                    new StringReader(
+                        // @checkstyle LineLength (1 line)
+                        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema'><xs:element name='page' type='xs:string'/></xs:schema>"
+                    )
+                )
+            );
+    }
+
+}
@@ -33,6 +33,7 @@ import com.jcabi.matchers.XhtmlMatchers;
 import com.rexsl.core.annotations.Stylesheet;
 import com.rexsl.mock.HttpServletRequestMocker;
 import java.io.StringWriter;
+import java.util.Arrays;
 import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.ext.ContextResolver;
@@ -99,6 +100,42 @@ public final class XslResolverTest {
         );
     }
 
+    /**
+     * XslResolver can reject sampling rate, which is not a number.
+     * @throws Exception If something goes wrong
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidSamplingRate() throws Exception {
+        final ServletContext ctx = Mockito.mock(ServletContext.class);
+        Mockito.doReturn("xsd").when(ctx)
+            .getInitParameter(XslResolver.XSD_FOLDER);
+        Mockito.doReturn("often").when(ctx)
+            .getInitParameter(XslResolver.XSD_SAMPLING);
+        new XslResolver().setServletContext(ctx);
+    }
+
+    /**
+     * XslResolver can add classes in one batch.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void addsClassesInBatch() throws Exception {
+        final XslResolver resolver = new XslResolver();
+        resolver.add(
+            Arrays.<Class<?>>asList(
+                XslResolverTest.Page.class, XslResolverTest.Injectable.class
+            )
+        );
+        final Page page = new XslResolverTest.Page();
+        page.inject(new XslResolverTest.Injectable());
+        final StringWriter writer = new StringWriter();
+        resolver.getContext(Page.class).marshal(page, writer);
+        MatcherAssert.assertThat(
+            writer,
+            XhtmlMatchers.hasXPath("/page/injectable/name")
+        );
+    }
+
     /**
      * XslResolver injects xml-stylesheet processing instruction.
      * @throws Exception If something goes wrong
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import com.jcabi.matchers.XhtmlMatchers;
+import com.rexsl.core.annotations.Stylesheet;
+import com.rexsl.mock.FilterConfigMocker;
+import com.rexsl.mock.HttpServletRequestMocker;
+import com.rexsl.mock.MkServletContext;
+import com.sun.jersey.core.header.OutBoundHeaders;
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.Annotation;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import org.apache.commons.lang3.CharEncoding;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Test case for {@link XslWriter}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class XslWriterTest {
+
+    /**
+     * XslWriter can transform a page straight from JAXB.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void transformsPageStraightFromJaxb() throws Exception {
+        final ServletContext context = new MkServletContext().withResource(
+            "/foo.xsl",
+            // @checkstyle LineLength (1 line)
+            "<stylesheet xmlns='http://www.w3.org/1999/XSL/Transform' xmlns:x='http://www.w3.org/1999/xhtml' version='2.0'><template match='/'><x:html><x:div><value-of select='/page/data'/></x:div></x:html></template></stylesheet>"
+        );
+        final XsltFilter filter = new XsltFilter();
+        filter.init(
+            new FilterConfigMocker()
+                .withServletContext(context)
+                .withParam(XsltFilter.PIPELINE, "sax")
+                .mock()
+        );
+        final ContextResolver<Marshaller> resolver =
+            Mockito.mock(ContextResolver.class);
+        Mockito.doReturn(
+            JAXBContext.newInstance(XslWriterTest.Page.class)
+                .createMarshaller()
+        ).when(resolver).getContext(Mockito.any(Class.class));
+        final Providers providers = Mockito.mock(Providers.class);
+        Mockito.doReturn(resolver).when(providers).getContextResolver(
+            Mockito.eq(Marshaller.class), Mockito.any(MediaType.class)
+        );
+        final HttpServletRequest request = new HttpServletRequestMocker()
+            .withHeader(HttpHeaders.USER_AGENT, "Firefox")
+            .withHeader(HttpHeaders.ACCEPT, MediaType.TEXT_HTML)
+            .mock();
+        Mockito.doReturn(filter).when(request)
+            .getAttribute(XsltFilter.class.getName());
+        final XslWriter writer = new XslWriter();
+        writer.setHttpServletRequest(request);
+        writer.setProviders(providers);
+        MatcherAssert.assertThat(
+            writer.isWriteable(
+                XslWriterTest.Page.class, XslWriterTest.Page.class,
+                new Annotation[0], MediaType.APPLICATION_XML_TYPE
+            ),
+            Matchers.is(true)
+        );
+        final MultivaluedMap<String, Object> headers = new OutBoundHeaders();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writer.writeTo(
+            new XslWriterTest.Page(), XslWriterTest.Page.class,
+            XslWriterTest.Page.class, new Annotation[0],
+            MediaType.APPLICATION_XML_TYPE, headers, output
+        );
+        filter.destroy();
+        MatcherAssert.assertThat(
+            headers.getFirst(HttpHeaders.CONTENT_TYPE).toString(),
+            Matchers.startsWith(MediaType.TEXT_HTML)
+        );
+        MatcherAssert.assertThat(
+            new String(output.toByteArray(), CharEncoding.UTF_8),
+            XhtmlMatchers.hasXPath("//xhtml:div[.='hello']")
+        );
+    }
+
+    /**
+     * XslWriter can leave pages to JAXB writer, when the filter doesn't
+     * transform them straight from JAXB.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void ignoresPagesWithoutPipeline() throws Exception {
+        final XslWriter writer = new XslWriter();
+        writer.setHttpServletRequest(new HttpServletRequestMocker().mock());
+        MatcherAssert.assertThat(
+            writer.isWriteable(
+                XslWriterTest.Page.class, XslWriterTest.Page.class,
+                new Annotation[0], MediaType.APPLICATION_XML_TYPE
+            ),
+            Matchers.is(false)
+        );
+    }
+
+    /**
+     * Page for tests.
+     */
+    @XmlRootElement(name = "page")
+    @Stylesheet("/foo.xsl")
+    public static final class Page {
+        /**
+         * Get data.
+         * @return Data
+         */
+        @XmlElement
+        public String getData() {
+            return "hello";
+        }
+    }
+
+}
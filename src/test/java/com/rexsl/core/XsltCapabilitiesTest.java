@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2011-2015, ReXSL.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met: 1) Redistributions of source code must retain the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer. 2) Redistributions in binary form must reproduce the above
+ * copyright notice, this list of conditions and the following
+ * disclaimer in the documentation and/or other materials provided
+ * with the distribution. 3) Neither the name of the ReXSL.com nor
+ * the names of its contributors may be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL
+ * THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.rexsl.core;
+
+import org.apache.commons.io.IOUtils;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+
+/**
+ * Test case for {@link XsltCapabilities}.
+ * @author Yegor Bugayenko (yegor@tpc2.com)
+ * @version $Id$
+ */
+public final class XsltCapabilitiesTest {
+
+    /**
+     * XsltCapabilities can find capable agents by their tokens.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void findsCapableAgents() throws Exception {
+        final XsltCapabilities caps = XsltCapabilities.load(
+            IOUtils.toInputStream("Firefox=3\nSafari=Version/5\nbot=-")
+        );
+        MatcherAssert.assertThat(
+            new UserAgent("Firefox/3.6", caps).isXsltCapable(),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            new UserAgent("Firefox/2", caps).isXsltCapable(),
+            Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            new UserAgent("Version/5.1 Safari/534", caps).isXsltCapable(),
+            Matchers.is(true)
+        );
+        MatcherAssert.assertThat(
+            new UserAgent("Safari/534", caps).isXsltCapable(),
+            Matchers.is(false)
+        );
+        MatcherAssert.assertThat(
+            new UserAgent("Firefox/30 bot/1", caps).isXsltCapable(),
+            Matchers.is(false)
+        );
+    }
+
+}
@@ -35,6 +35,7 @@ import com.rexsl.mock.FilterConfigMocker;
 import com.rexsl.mock.HttpServletRequestMocker;
 import com.rexsl.mock.HttpServletResponseMocker;
 import com.rexsl.mock.MkServletContext;
+import java.io.ByteArrayOutputStream;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -45,7 +46,9 @@ import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 /**
@@ -93,6 +96,46 @@ public final class XsltFilterTest {
         );
     }
 
+    /**
+     * XsltFilter can find stylesheet of this context by its absolute URL
+     * locally.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void findsStylesheetOfThisContextLocally() throws Exception {
+        final ServletContext context = new MkServletContext()
+            .withResource(
+                "/xsl/foo.xsl",
+                // @checkstyle LineLength (1 line)
+                "<stylesheet xmlns='http://www.w3.org/1999/XSL/Transform' xmlns:x='http://www.w3.org/1999/xhtml' version='2.0'><template match='/'><x:html><x:p>local</x:p></x:html></template></stylesheet>"
+        );
+        final FilterConfig config = new FilterConfigMocker()
+            .withServletContext(context)
+            .mock();
+        final HttpServletRequest request = new HttpServletRequestMocker()
+            .withHeader(HttpHeaders.USER_AGENT, "Firefox")
+            .withHeader(HttpHeaders.ACCEPT, MediaType.TEXT_HTML)
+            .mock();
+        Mockito.doReturn("http").when(request).getScheme();
+        Mockito.doReturn("localhost").when(request).getServerName();
+        // @checkstyle MagicNumber (1 line)
+        Mockito.doReturn(8080).when(request).getServerPort();
+        final HttpServletResponse response = new HttpServletResponseMocker()
+            .mock();
+        final FilterChain chain = new FilterChainMocker()
+            // @checkstyle LineLength (1 line)
+            .withOutput("<?xml version='1.0'?><?xml-stylesheet href='http://localhost:8080/xsl/foo.xsl?1.0' type='text/xsl'?><page/>")
+            .mock();
+        final Filter filter = new XsltFilter();
+        filter.init(config);
+        filter.doFilter(request, response, chain);
+        filter.destroy();
+        MatcherAssert.assertThat(
+            response,
+            XhtmlMatchers.hasXPath("/xhtml:html/xhtml:p[.='local']")
+        );
+    }
+
     /**
      * XsltFilter can pass binary content through.
      * @throws Exception If something goes wrong
@@ -105,18 +148,83 @@ public final class XsltFilterTest {
             .mock();
         final Filter filter = new XsltFilter();
         filter.init(new FilterConfigMocker().mock());
-        final ServletOutputStream stream =
-            Mockito.mock(ServletOutputStream.class);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
         final HttpServletResponse response =
             Mockito.mock(HttpServletResponse.class);
-        Mockito.doReturn(stream).when(response).getOutputStream();
+        Mockito.doReturn(
+            new ServletOutputStream() {
+                @Override
+                public void write(final int data) {
+                    output.write(data);
+                }
+            }
+        ).when(response).getOutputStream();
         filter.doFilter(
             new HttpServletRequestMocker().mock(),
             response,
             chain
         );
         filter.destroy();
-        Mockito.verify(stream).write(binary);
+        MatcherAssert.assertThat(
+            output.toByteArray(),
+            Matchers.equalTo(binary)
+        );
+    }
+
+    /**
+     * XsltFilter can answer with 304 when the page is not modified.
+     * @throws Exception If something goes wrong
+     */
+    @Test
+    public void answersNotModified() throws Exception {
+        final FilterConfig config = new FilterConfigMocker()
+            .withServletContext(
+                new MkServletContext().withResource(
+                    "/bar.xsl",
+                    // @checkstyle LineLength (1 line)
+                    "<xsl:stylesheet xmlns:xsl='http://www.w3.org/1999/XSL/Transform' version='2.0'><xsl:template match='/'><p/></xsl:template></xsl:stylesheet>"
+                )
+            )
+            .mock();
+        final FilterChain chain = new FilterChainMocker()
+            // @checkstyle LineLength (1 line)
+            .withOutput("<?xml version='1.0'?><?xml-stylesheet href='/bar.xsl' type='text/xsl'?><page/>")
+            .mock();
+        final Filter filter = new XsltFilter();
+        filter.init(config);
+        final HttpServletResponse first = new HttpServletResponseMocker()
+            .mock();
+        filter.doFilter(
+            new HttpServletRequestMocker()
+                .withHeader(HttpHeaders.USER_AGENT, "Firefox")
+                .withHeader(HttpHeaders.ACCEPT, MediaType.TEXT_HTML)
+                .mock(),
+            first,
+            chain
+        );
+        MatcherAssert.assertThat(
+            first.toString(), Matchers.containsString("<p")
+        );
+        final ArgumentCaptor<String> etag =
+            ArgumentCaptor.forClass(String.class);
+        Mockito.verify(first)
+            .setHeader(Mockito.eq(HttpHeaders.ETAG), etag.capture());
+        final HttpServletResponse second = new HttpServletResponseMocker()
+            .expectStatus(HttpServletResponse.SC_NOT_MODIFIED)
+            .mock();
+        filter.doFilter(
+            new HttpServletRequestMocker()
+                .withHeader(HttpHeaders.USER_AGENT, "Firefox")
+                .withHeader(HttpHeaders.ACCEPT, MediaType.TEXT_HTML)
+                .withHeader(HttpHeaders.IF_NONE_MATCH, etag.getValue())
+                .mock(),
+            second,
+            chain
+        );
+        filter.destroy();
+        Mockito.verify(second)
+            .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        MatcherAssert.assertThat(second.toString(), Matchers.isEmptyString());
     }
 
 }
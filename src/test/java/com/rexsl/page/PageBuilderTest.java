@@ -31,6 +31,7 @@ package com.rexsl.page;
 
 import com.jcabi.matchers.JaxbConverter;
 import com.jcabi.matchers.XhtmlMatchers;
+import com.rexsl.core.annotations.Schema;
 import com.rexsl.core.annotations.Stylesheet;
 import com.rexsl.page.mock.BasePageMocker;
 import com.rexsl.page.mock.ResourceMocker;
@@ -96,6 +97,54 @@ public final class PageBuilderTest {
         );
     }
 
+    /**
+     * PageBuilder can reuse generated classes.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void reusesGeneratedClasses() throws Exception {
+        final String xsl = "/some/path/reused.xsl";
+        MatcherAssert.assertThat(
+            new PageBuilder()
+                .stylesheet(xsl)
+                .build(PageBuilderTest.BarPage.class)
+                .getClass(),
+            Matchers.<Class<?>>sameInstance(
+                new PageBuilder()
+                    .stylesheet(xsl)
+                    .build(PageBuilderTest.BarPage.class)
+                    .getClass()
+            )
+        );
+    }
+
+    /**
+     * PageBuilder can generate different classes for different schemas.
+     * @throws Exception If there is some problem inside
+     */
+    @Test
+    public void separatesClassesBySchemas() throws Exception {
+        final String xsl = "/some/path/schemas.xsl";
+        final Object page = new PageBuilder()
+            .stylesheet(xsl)
+            .schema("/xsd/first.xsd")
+            .build(PageBuilderTest.BarPage.class);
+        MatcherAssert.assertThat(
+            page.getClass().getAnnotation(Schema.class).value(),
+            Matchers.equalTo("/xsd/first.xsd")
+        );
+        MatcherAssert.assertThat(
+            new PageBuilder()
+                .stylesheet(xsl)
+                .schema("/xsd/second.xsd")
+                .build(PageBuilderTest.BarPage.class)
+                .getClass()
+                .getAnnotation(Schema.class)
+                .value(),
+            Matchers.equalTo("/xsd/second.xsd")
+        );
+    }
+
     /**
      * Sample dummy page.
      */